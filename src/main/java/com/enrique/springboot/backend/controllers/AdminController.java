@@ -0,0 +1,95 @@
+package com.enrique.springboot.backend.controllers;
+
+import com.enrique.springboot.backend.dto.AggregateReconcileResponse;
+import com.enrique.springboot.backend.dto.AmountPaidVerifyResponse;
+import com.enrique.springboot.backend.dto.LedgerRebuildResponse;
+import com.enrique.springboot.backend.dto.ProductCacheStatsResponse;
+import com.enrique.springboot.backend.services.DashboardAggregateService;
+import com.enrique.springboot.backend.services.InventoryLedgerService;
+import com.enrique.springboot.backend.services.PaymentService;
+import com.enrique.springboot.backend.services.ProductService;
+import com.enrique.springboot.backend.services.UserService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/*
+* Controlador REST de mantenimiento
+* Solo para usuarios ADMIN (ver SecurityConfig)
+*/
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:4200"})
+public class AdminController {
+
+    private final InventoryLedgerService inventoryLedgerService;
+    private final DashboardAggregateService aggregateService;
+    private final PaymentService paymentService;
+    private final ProductService productService;
+    private final UserService userService;
+
+    public AdminController(InventoryLedgerService inventoryLedgerService,
+                           DashboardAggregateService aggregateService,
+                           PaymentService paymentService,
+                           ProductService productService,
+                           UserService userService) {
+        this.inventoryLedgerService = inventoryLedgerService;
+        this.aggregateService = aggregateService;
+        this.paymentService = paymentService;
+        this.productService = productService;
+        this.userService = userService;
+    }
+
+    /*
+    * POST /api/admin/inventory-ledger/rebuild
+    * Regenera el libro de reservas desde las rentas y reporta cuántas horas no coincidían
+    */
+    @PostMapping("/inventory-ledger/rebuild")
+    public ResponseEntity<LedgerRebuildResponse> rebuildInventoryLedger() {
+        return ResponseEntity.ok(inventoryLedgerService.rebuild());
+    }
+
+    /*
+    * POST /api/admin/dashboard/reconcile
+    * Recalcula los contadores del dashboard desde cero y reporta las llaves que no coincidían
+    */
+    @PostMapping("/dashboard/reconcile")
+    public ResponseEntity<AggregateReconcileResponse> reconcileDashboard() {
+        return ResponseEntity.ok(aggregateService.reconcile());
+    }
+
+    /*
+    * POST /api/admin/payments/verify-amount-paid
+    * Compara el total pagado guardado en cada renta contra sus pagos y corrige diferencias
+    */
+    @PostMapping("/payments/verify-amount-paid")
+    public ResponseEntity<AmountPaidVerifyResponse> verifyAmountPaid() {
+        return ResponseEntity.ok(paymentService.verifyAmountPaid());
+    }
+
+    /*
+    * GET /api/admin/product-cache
+    * Estado del caché del catálogo: aciertos, fallos, invalidaciones y productos en memoria
+    */
+    @GetMapping("/product-cache")
+    public ResponseEntity<ProductCacheStatsResponse> productCacheStats() {
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+
+    /*
+    * POST /api/admin/users/{id}/revoke-sessions
+    * Cierra todas las sesiones de un usuario (refresh tokens y access tokens vigentes)
+    * Para cuando alguien deja de trabajar aquí y todavía no se elimina su usuario
+    */
+    @PostMapping("/users/{id}/revoke-sessions")
+    public ResponseEntity<Void> revokeSessions(@PathVariable Long id) {
+        if (userService.revokeSessions(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -3,15 +3,25 @@ package com.enrique.springboot.backend.controllers;
 // DTOs para request y response
 import com.enrique.springboot.backend.dto.AuthResponse;
 import com.enrique.springboot.backend.dto.LoginRequest;
+import com.enrique.springboot.backend.dto.RefreshTokenRequest;
 
 // Entidad User
 import com.enrique.springboot.backend.entities.User;
 
 // Servicios
+import com.enrique.springboot.backend.security.VerifiedTokenCache;
 import com.enrique.springboot.backend.services.JwtService;
+import com.enrique.springboot.backend.services.RefreshTokenService;
+import com.enrique.springboot.backend.services.TokenRevocationService;
 import com.enrique.springboot.backend.services.UserService;
 
+// JWT
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+
 // Spring
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,10 +29,13 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 /* Controlador de autenticación
 *
-* Maneja el login de usuarios y genera tokens JWT */
+* Maneja el login de usuarios y genera tokens JWT
+* - El access token dura poco (jwt.expiration.time) y se renueva con el refresh token
+* - logout revoca ambos */
 
 @RestController
 @RequestMapping("/api/auth")
@@ -39,12 +52,27 @@ public class AuthController {
     // Servicio JWT para generar tokens
     private final JwtService jwtService;
 
+    // Refresh tokens (renovar el access token sin pedir la contraseña)
+    private final RefreshTokenService refreshTokenService;
+
+    // Tokens revocados (logout)
+    private final TokenRevocationService tokenRevocationService;
+
+    // Tokens ya verificados por el filtro (se olvida el que se revoca)
+    private final VerifiedTokenCache tokenCache;
+
     // ========================
     // Constructor (Inyección de dependencias)
     // ========================
-    public AuthController(UserService service, JwtService jwtService) {
+    public AuthController(UserService service, JwtService jwtService,
+                          RefreshTokenService refreshTokenService,
+                          TokenRevocationService tokenRevocationService,
+                          VerifiedTokenCache tokenCache) {
         this.service = service;
         this.jwtService = jwtService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.tokenCache = tokenCache;
     }
 
     // ========================
@@ -58,10 +86,19 @@ public class AuthController {
     public ResponseEntity<?> login(@RequestBody LoginRequest request) {
 
         // 1.- Intentar autenticar al usuario con sus credenciales
-        Optional<User> userOptional = service.login(
-                request.getUsername(),
-                request.getPassword()
-        );
+        Optional<User> userOptional;
+        try {
+            userOptional = service.login(
+                    request.getUsername(),
+                    request.getPassword()
+            );
+        } catch (RejectedExecutionException e) {
+            // Demasiados logins al mismo tiempo: 503 para que el cliente reintente
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Demasiados inicios de sesión, intenta de nuevo");
+        }
 
         // 2.- Si el usuario no existe o la contraseña es incorrecta
         if (userOptional.isEmpty()) {
@@ -74,23 +111,78 @@ public class AuthController {
         // 3.- Si las credenciales son correctas, obtener el usuario
         User user = userOptional.get();
 
-        // 4.- Crear claims adicionales para incluir en el token
+        // 4.- Generar el access token y un refresh token, y retornar la respuesta
+        return ResponseEntity.ok(buildAuthResponse(user, refreshTokenService.issue(user)));
+    }
+
+    // ========================
+    // Endpoint: POST /api/auth/refresh
+    // ========================
+    /* Entrega un access token nuevo a cambio de un refresh token vigente
+    * El refresh token usado deja de servir y se entrega otro en la respuesta
+    *
+    * @return AuthResponse con los tokens nuevos o 401 si el refresh token no es válido */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest request) {
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate(request.getRefreshToken());
+        if (rotation.isEmpty()) {
+            return ResponseEntity
+                    .status(401)
+                    .body("Sesión expirada, inicia sesión de nuevo");
+        }
+        return ResponseEntity.ok(buildAuthResponse(rotation.get().user(), rotation.get().refreshToken()));
+    }
+
+    // ========================
+    // Endpoint: POST /api/auth/logout
+    // ========================
+    /* Cierra la sesión: revoca el refresh token y el access token del header Authorization
+    * (si viene y sigue vigente), así ninguno de los dos vuelve a servir
+    *
+    * @return 204 siempre (aunque los tokens ya no fueran válidos) */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestBody(required = false) RefreshTokenRequest request,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        if (request != null) {
+            refreshTokenService.revoke(request.getRefreshToken());
+        }
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            try {
+                Claims claims = jwtService.parseClaims(token);
+                if (claims.getExpiration() != null) {
+                    tokenRevocationService.revokeToken(claims.getId(), claims.getSubject(),
+                            claims.getExpiration().getTime());
+                }
+                tokenCache.evict(token);
+            } catch (JwtException | IllegalArgumentException e) {
+                // Token inválido o vencido: no hay nada que revocar
+            }
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /* Crea el access token de un usuario y la respuesta con sus datos */
+    private AuthResponse buildAuthResponse(User user, String refreshToken) {
+        // Crear claims adicionales para incluir en el token
         // Estos datos estarán disponibles al decodificar el token
         Map<String, Object> extraClaims = new HashMap<>();
         extraClaims.put("id", user.getId());
         extraClaims.put("role", user.getRole().name());
 
-        // 5.- Generar el token JWT
+        // Generar el token JWT
         String token = jwtService.generateToken(user.getUsername(), extraClaims);
 
-        // 6.- Retornar la respuesta con token y datos del usuario
-        return ResponseEntity.ok(new AuthResponse(
+        // Respuesta con tokens y datos del usuario
+        return new AuthResponse(
                 token,
+                refreshToken,
                 user.getId(),
                 user.getUsername(),
                 user.getRole().name(),
                 user.getImageUrl(),
                 user.getTelefono()
-        ));
+        );
     }
 }
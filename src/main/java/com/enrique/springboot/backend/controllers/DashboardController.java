@@ -1,12 +1,21 @@
 package com.enrique.springboot.backend.controllers;
 
 import com.enrique.springboot.backend.dto.DashboardStatsResponse;
+import com.enrique.springboot.backend.dto.TimeSeriesResponse;
+import com.enrique.springboot.backend.enums.TimeGranularity;
 import com.enrique.springboot.backend.services.DashboardService;
+import com.enrique.springboot.backend.services.DashboardStatsPublisher;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
 
 /*
 * Controlador REST para el dashboard
@@ -20,9 +29,13 @@ public class DashboardController {
     // Inyectamos el servicio de dashboard
     private final DashboardService dashboardService;
 
+    // Envía las estadísticas en vivo
+    private final DashboardStatsPublisher statsPublisher;
+
     // Constructor con inyección de dependencias
-    public DashboardController(DashboardService dashboardService) {
+    public DashboardController(DashboardService dashboardService, DashboardStatsPublisher statsPublisher) {
         this.dashboardService = dashboardService;
+        this.statsPublisher = statsPublisher;
     }
 
     /*
@@ -31,12 +44,45 @@ public class DashboardController {
     * - rentasPorEntregar
     * - rentasPorRecoger
     * - ingresosDelMes
+    * - pagosDelMes
+    * - saldoPendiente
     */
     @GetMapping("/stats")
     public ResponseEntity<DashboardStatsResponse> getStats() {
         DashboardStatsResponse stats = dashboardService.getStats();
         return ResponseEntity.ok(stats);
     }
+
+    /*
+    * GET /api/dashboard/stream
+    * Conexión Server-Sent Events: envía un evento "stats" (DashboardStatsResponse)
+    * al conectarse y después solo cuando una renta o un pago cambia las estadísticas
+    * Reemplaza consultar /stats cada pocos segundos
+    * Nota: EventSource del navegador no permite mandar el header Authorization,
+    * el frontend debe abrir la conexión con fetch (por ejemplo fetch-event-source)
+    */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStats() {
+        return statsPublisher.subscribe();
+    }
+
+    /*
+    * GET /api/dashboard/timeseries?from=2025-01-01&to=2025-12-31&granularity=MONTH
+    * Retorna ingresos (rentas) y cobros (pagos) por día, semana o mes
+    * - from y to incluidos
+    * - granularity: DAY (default), WEEK o MONTH
+    */
+    @GetMapping("/timeseries")
+    public ResponseEntity<TimeSeriesResponse> getTimeSeries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") TimeGranularity granularity) {
+        try {
+            return ResponseEntity.ok(dashboardService.getTimeSeries(from, to, granularity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
 
 /*
@@ -45,6 +91,7 @@ public class DashboardController {
 * @RequestMapping("/api/dashboard") - Ruta base del controlador
 * @CrossOrigin - Permite peticiones desde el frontend (React en el puerto 5173)
 * @GetMapping("/stats") - Endpoint GET en /api/dashboard/stats
+* @GetMapping("/timeseries") - Endpoint GET para la gráfica de ingresos y cobros
 * ResponseEntity.ok() - Respuesta HTTP 200 con el body
 * Siguiente paso: Frontend -> Crear dashboardService.js
 */
@@ -1,20 +1,43 @@
 package com.enrique.springboot.backend.controllers;
 
+import com.enrique.springboot.backend.dto.BulkPaymentResponse;
 import com.enrique.springboot.backend.dto.CreatePaymentRequest;
 import com.enrique.springboot.backend.dto.PaymentResponse;
 import com.enrique.springboot.backend.dto.PaymentResponse.RentalInfo;
+import com.enrique.springboot.backend.dto.UnpaidRentalPageResponse;
+import com.enrique.springboot.backend.dto.UnpaidRentalResponse;
 import com.enrique.springboot.backend.entities.Payment;
 import com.enrique.springboot.backend.entities.Rental;
+import com.enrique.springboot.backend.enums.RentalStatus;
 import com.enrique.springboot.backend.repositories.RentalRepository;
+import com.enrique.springboot.backend.services.IdempotencyStore;
 import com.enrique.springboot.backend.services.PaymentService;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /* Controller REST para operaciones de pagos/anticipos
 * Base URL: /api/payments */
@@ -23,16 +46,43 @@ import java.util.Optional;
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:4200"})
 public class PaymentController {
 
+    // Máximo de rentas por consulta de saldos
+    private static final int MAX_BALANCE_IDS = 500;
+
+    // Tamaño de página del reporte de saldos pendientes
+    private static final int DEFAULT_UNPAID_PAGE_SIZE = 50;
+    private static final int MAX_UNPAID_PAGE_SIZE = 200;
+
+    // Status que entran al reporte si no se indican (ya se entregaron)
+    private static final List<RentalStatus> DEFAULT_UNPAID_STATUSES =
+            List.of(RentalStatus.DELIVERED, RentalStatus.PICKED_UP);
+
+    // Máximo de filas por carga masiva
+    private static final int MAX_BULK_ROWS = 10000;
+
     // Servicio de pagos - contiene la lógica de negocio
     private final PaymentService paymentService;
 
+    // Header con el que el cliente marca un pago para poder reintentarlo sin duplicarlo
+    private static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+
+    // Cuánto espera una repetición a que termine la petición original
+    private static final long REPLAY_WAIT_SECONDS = 10;
+
     // Repositorio de rentas - para buscar la renta al crear un pago
     private final RentalRepository rentalRepository;
 
+    // Respuestas de pagos ya creados, por llave de idempotencia
+    private final IdempotencyStore<PaymentResponse> idempotencyStore;
+
     /* Constructor con inyección de dependencias */
-    public PaymentController(PaymentService paymentService, RentalRepository rentalRepository) {
+    public PaymentController(PaymentService paymentService, RentalRepository rentalRepository,
+                             @Value("${payments.idempotency.max-keys:10000}") int maxIdempotencyKeys,
+                             @Value("${payments.idempotency.ttl-minutes:1440}") long idempotencyTtlMinutes) {
         this.paymentService = paymentService;
         this.rentalRepository = rentalRepository;
+        this.idempotencyStore = new IdempotencyStore<>(maxIdempotencyKeys, Duration.ofMinutes(idempotencyTtlMinutes));
     }
 
     // GET /api/payments/rental/{rentalId}
@@ -51,7 +101,7 @@ public class PaymentController {
 
         // Obtener datos de la renta para incluir en cada respuesta
         Rental rental = optionalRental.get();
-        Long totalPaid = paymentService.getTotalPaidByRentalId(rentalId);
+        Long totalPaid = rental.getAmountPaid();
 
         // Convertir entidades a DTOs
         List<PaymentResponse> response = payments.stream()
@@ -73,7 +123,7 @@ public class PaymentController {
 
         Payment payment = optionalPayment.get();
         Rental rental = payment.getRental();
-        Long totalPaid = paymentService.getTotalPaidByRentalId(rental.getId());
+        Long totalPaid = rental.getAmountPaid();
 
         return ResponseEntity.ok(toPaymentResponse(payment, rental, totalPaid));
     }
@@ -81,8 +131,73 @@ public class PaymentController {
     // POST /api/payments
     // Crea un nuevo pago/anticipo
     // @Valid activa las validaciones del DTO (@NotNull, @Min, etc.)
+    // Header opcional Idempotency-Key: si el cliente reintenta con la misma llave
+    // recibe la respuesta original y el pago no se registra dos veces
+    // - 422 si la llave ya se usó con otros datos
+    // - 409 si la petición original sigue en proceso o falló (reintentar)
     @PostMapping
-    public ResponseEntity<PaymentResponse> createPayment(@Valid @RequestBody CreatePaymentRequest request) {
+    public ResponseEntity<PaymentResponse> createPayment(
+            @Valid @RequestBody CreatePaymentRequest request,
+            @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return doCreatePayment(request, null);
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // La llave es por usuario, para que dos usuarios no choquen con la misma
+        String key = idempotencyKey(authentication.getName(), idempotencyKey);
+        String fingerprint = request.getRentalId() + "|" + request.getAmount() + "|"
+                + request.getPaymentDate() + "|" + request.getNotes();
+
+        IdempotencyStore.Claim<PaymentResponse> claim = idempotencyStore.claim(key, fingerprint);
+        if (!claim.owner()) {
+            // Repetición: misma respuesta que la original, sin llamar al servicio
+            if (!claim.fingerprint().equals(fingerprint)) {
+                return ResponseEntity.unprocessableEntity().build();
+            }
+            try {
+                PaymentResponse original = claim.result().get(REPLAY_WAIT_SECONDS, TimeUnit.SECONDS);
+                return ResponseEntity.status(HttpStatus.CREATED).body(original);
+            } catch (ExecutionException | TimeoutException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+        }
+
+        try {
+            ResponseEntity<PaymentResponse> response = doCreatePayment(request, key);
+            if (response.getStatusCode() == HttpStatus.CREATED) {
+                idempotencyStore.complete(key, response.getBody());
+            } else {
+                idempotencyStore.release(key, new IllegalStateException("Pago no creado"));
+            }
+            return response;
+        } catch (RuntimeException e) {
+            idempotencyStore.release(key, e);
+            throw e;
+        }
+    }
+
+    /* Llave que se guarda en payments.idempotency_key: SHA-256 de usuario + header en Base64
+    * Siempre mide 44 caracteres, sin importar el largo del usuario, y cabe en la columna (150) */
+    private static String idempotencyKey(String username, String headerKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((username + ":" + headerKey).getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las JVM incluyen SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Crea el pago; idempotencyKey (puede ser null) se guarda en el pago como respaldo en la base de datos
+    private ResponseEntity<PaymentResponse> doCreatePayment(CreatePaymentRequest request, String idempotencyKey) {
         // Buscar la renta asociada
         Optional<Rental> optionalRental = rentalRepository.findById(request.getRentalId());
         if (optionalRental.isEmpty()){
@@ -104,11 +219,29 @@ public class PaymentController {
             payment.setPaymentDate(LocalDateTime.now());
         }
 
+        payment.setIdempotencyKey(idempotencyKey);
+
         // Guardar el pago
-        Payment savedPayment = paymentService.save(payment);
+        Payment savedPayment;
+        try {
+            savedPayment = paymentService.save(payment);
+        } catch (DataIntegrityViolationException e) {
+            // La llave ya existe en la base de datos (la memoria la olvidó o se reinició el servidor):
+            // se responde con el pago original
+            Optional<Payment> original = idempotencyKey == null
+                    ? Optional.empty()
+                    : paymentService.findByIdempotencyKey(idempotencyKey);
+            if (original.isEmpty()) {
+                throw e;
+            }
+            Rental originalRental = original.get().getRental();
+            return ResponseEntity
+                    .status(HttpStatus.CREATED)
+                    .body(toPaymentResponse(original.get(), originalRental, originalRental.getAmountPaid()));
+        }
 
-        // Calcular el nuevo total pagado (incluyendo este pago)
-        Long totalPaid = paymentService.getTotalPaidByRentalId(rental.getId());
+        // Nuevo total pagado (incluyendo este pago), ya actualizado por el servicio
+        Long totalPaid = rental.getAmountPaid();
 
         // Retornal la respuesta con status 201 (Created)
         return ResponseEntity
@@ -116,6 +249,47 @@ public class PaymentController {
                 .body(toPaymentResponse(savedPayment, rental, totalPaid));
     }
 
+    // POST /api/payments/bulk (JSON: arreglo de CreatePaymentRequest)
+    // Crea muchos pagos a la vez; responde el resultado de cada fila (id creado o error)
+    // Las filas con error no detienen a las demás
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkPaymentResponse> createPaymentsBulk(@RequestBody List<CreatePaymentRequest> rows) {
+        if (rows.isEmpty() || rows.size() > MAX_BULK_ROWS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(paymentService.importPayments(rows));
+    }
+
+    // POST /api/payments/bulk (text/csv)
+    // Columnas: rentalId,amount,paymentDate,notes (encabezado opcional, fecha ISO o vacía)
+    // El cuerpo se lee línea por línea; una línea que no se puede leer se reporta como error de esa fila
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    public ResponseEntity<BulkPaymentResponse> createPaymentsBulkCsv(InputStream body) throws IOException {
+        List<CreatePaymentRequest> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (first && line.toLowerCase().startsWith("rentalid")) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                if (rows.size() == MAX_BULK_ROWS) {
+                    return ResponseEntity.badRequest().build();
+                }
+                rows.add(parseCsvRow(line));
+            }
+        }
+        if (rows.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(paymentService.importPayments(rows));
+    }
+
     // DELETE /api/payments/{id}
     // Elimina un pago por su ID
     // Uso: Corregir un pago registrado por error
@@ -132,6 +306,60 @@ public class PaymentController {
         return ResponseEntity.noContent().build();
     }
 
+    // GET /api/payments/balances?rentalIds=1,2,3
+    // Total, pagado y pendiente de varias rentas en una sola consulta
+    // Uso: columna "saldo pendiente" en la lista de rentas
+    @GetMapping("/balances")
+    public ResponseEntity<List<RentalInfo>> getBalances(@RequestParam List<Long> rentalIds) {
+        if (rentalIds.size() > MAX_BALANCE_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(paymentService.getBalances(rentalIds));
+    }
+
+    // GET /api/payments/balances/open
+    // Todas las rentas no canceladas que aún tienen saldo pendiente
+    @GetMapping("/balances/open")
+    public ResponseEntity<List<RentalInfo>> getOpenBalances() {
+        return ResponseEntity.ok(paymentService.getOpenBalances());
+    }
+
+    // GET /api/payments/unpaid?statuses=DELIVERED,PICKED_UP&minDaysSinceEnd=7&size=50
+    // Rentas que aún deben dinero, de la que más debe a la que menos, calculado en una sola consulta
+    // minDaysSinceEnd: solo rentas que terminaron hace al menos esos días (0 = ya terminaron)
+    // Siguiente página: mismos filtros + afterOwed=<nextOwed>&afterId=<nextId>
+    @GetMapping("/unpaid")
+    public ResponseEntity<UnpaidRentalPageResponse> getUnpaidRentals(
+            @RequestParam(required = false) List<RentalStatus> statuses,
+            @RequestParam(defaultValue = "0") int minDaysSinceEnd,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Long afterOwed,
+            @RequestParam(required = false) Long afterId) {
+        if (minDaysSinceEnd < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = size == null ? DEFAULT_UNPAID_PAGE_SIZE
+                : Math.max(1, Math.min(size, MAX_UNPAID_PAGE_SIZE));
+        List<RentalStatus> filter = statuses == null || statuses.isEmpty() ? DEFAULT_UNPAID_STATUSES : statuses;
+        LocalDateTime endedBefore = LocalDateTime.now().minusDays(minDaysSinceEnd);
+
+        // Se pide uno de más para saber si hay otra página
+        List<UnpaidRentalResponse> rows = paymentService.getUnpaidRentals(
+                filter, endedBefore, afterOwed, afterId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        UnpaidRentalResponse last = hasMore ? rows.get(rows.size() - 1) : null;
+        return ResponseEntity.ok(new UnpaidRentalPageResponse(
+                rows,
+                hasMore,
+                last != null ? last.getOwed() : null,
+                last != null ? last.getRentalId() : null
+        ));
+    }
+
     // GET /api/paymets/rental/{rentalId}/summary
     // Obtiene resumen de pagos de una renta (total, pagado, pendiente)
     // Uso: Mostrar resumen rápido sin el historial completo
@@ -144,7 +372,7 @@ public class PaymentController {
         }
 
         Rental rental = optionalRental.get();
-        Long totalPaid = paymentService.getTotalPaidByRentalId(rentalId);
+        Long totalPaid = rental.getAmountPaid();
 
         RentalInfo summary = new RentalInfo(
                 rental.getId(),
@@ -154,6 +382,61 @@ public class PaymentController {
         );
         return ResponseEntity.ok(summary);
     }
+    // HELPER: Convierte una línea CSV en CreatePaymentRequest, o null si no se puede leer
+    private static CreatePaymentRequest parseCsvRow(String line) {
+        List<String> fields = splitCsvLine(line);
+        if (fields == null || fields.size() < 2 || fields.size() > 4) {
+            return null;
+        }
+        try {
+            CreatePaymentRequest request = new CreatePaymentRequest();
+            request.setRentalId(Long.valueOf(fields.get(0).trim()));
+            request.setAmount(Long.valueOf(fields.get(1).trim()));
+            if (fields.size() > 2 && !fields.get(2).isBlank()) {
+                request.setPaymentDate(LocalDateTime.parse(fields.get(2).trim()));
+            }
+            if (fields.size() > 3 && !fields.get(3).isEmpty()) {
+                request.setNotes(fields.get(3));
+            }
+            return request;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // HELPER: Separa una línea CSV; acepta campos entre comillas con "" como comilla
+    // Regresa null si una comilla queda abierta
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
     // Método auxiliar: Convierte Payment entity a PaymentResponse DTO
     // Centraliza la lógica de mapeo para evitar duplicación
     private PaymentResponse toPaymentResponse(Payment payment, Rental rental, Long totalPaid) {
@@ -179,7 +462,11 @@ public class PaymentController {
 * GET -> /api/paymets/{id} -> Obtiene un pago por id
 * POST -> /api/paymets -> Crea nuevo pago
 * DELETE -> /api/payments/{id} -> Elimina un pago
-* GET -> /api/paymets/rental/{rentalId}/summary -> Resumen de pagos */
+* GET -> /api/paymets/rental/{rentalId}/summary -> Resumen de pagos
+* GET -> /api/payments/balances?rentalIds=... -> Saldos de varias rentas
+* GET -> /api/payments/balances/open -> Saldos de rentas que aún deben
+* POST -> /api/payments/bulk -> Carga masiva de pagos (JSON o CSV)
+* GET -> /api/payments/unpaid -> Rentas con saldo pendiente, de mayor a menor */
 
 
 
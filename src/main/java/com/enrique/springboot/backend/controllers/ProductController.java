@@ -1,16 +1,19 @@
 package com.enrique.springboot.backend.controllers;
 
+import com.enrique.springboot.backend.dto.AvailabilityCalendarResponse;
 import com.enrique.springboot.backend.dto.ProductAvailabilityResponse;
 import com.enrique.springboot.backend.entities.Product;
-import com.enrique.springboot.backend.enums.RentalStatus;
-import com.enrique.springboot.backend.repositories.RentalItemRepository;
+import com.enrique.springboot.backend.services.AvailabilityService;
 import com.enrique.springboot.backend.services.ProductService;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,11 +23,11 @@ import java.util.Optional;
 public class ProductController {
 
     private final ProductService service;
-    private final RentalItemRepository rentalItemRepository;
+    private final AvailabilityService availabilityService;
 
-    public ProductController(ProductService service, RentalItemRepository rentalItemRepository) {
+    public ProductController(ProductService service, AvailabilityService availabilityService) {
         this.service = service;
-        this.rentalItemRepository = rentalItemRepository;
+        this.availabilityService = availabilityService;
     }
 
     @GetMapping
@@ -40,32 +43,21 @@ public class ProductController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
 
-        List<RentalStatus> activeStatuses = List.of(RentalStatus.CREATED, RentalStatus.DELIVERED);
-
-        List<ProductAvailabilityResponse> availability = service.findAll().stream()
-                .map(product -> {
-                    Long rentedQuantity = rentalItemRepository.getRentedQuantityByProductAndDates(
-                            product.getId(),
-                            startDate,
-                            endDate,
-                            activeStatuses
-                    );
-                    return new ProductAvailabilityResponse(
-                            product.getId(),
-                            product.getName(),
-                            product.getDescription(),
-                            product.getPrice(),
-                            product.getColor(),
-                            product.getStock(),
-                            rentedQuantity,
-                            product.getImageUrl()
-                    );
-                })
-                .toList();
+        List<ProductAvailabilityResponse> availability = availabilityService.getAvailability(startDate, endDate);
 
         return ResponseEntity.ok(availability);
     }
 
+    // --------------------
+    // CALENDARIO DE DISPONIBILIDAD DEL MES
+    // GET /api/products/availability/calendar?month=YYYY-MM
+    // Unidades libres por producto y por día, en una sola petición
+    // --------------------
+    @GetMapping("/availability/calendar")
+    public ResponseEntity<AvailabilityCalendarResponse> getAvailabilityCalendar(@RequestParam YearMonth month) {
+        return ResponseEntity.ok(availabilityService.getCalendar(month));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Product> details (@PathVariable Long id){
         Optional<Product> optionalProduct = service.findById(id);
@@ -85,13 +77,24 @@ public class ProductController {
         Optional<Product> optionalProduct = service.findById(id);
         if (optionalProduct.isPresent()){
             Product productDb = optionalProduct.orElseThrow();
-            productDb.setName(product.getName());
-            productDb.setDescription(product.getDescription());
-            productDb.setPrice(product.getPrice());
-            productDb.setColor(product.getColor());
-            productDb.setStock(product.getStock());
-            productDb.setImageUrl(product.getImageUrl());
-            return ResponseEntity.status(HttpStatus.CREATED).body(service.save(productDb));
+            try {
+                // Versión que leyó el cliente contra la guardada; si no la manda, gana el último en guardar
+                // Se compara aquí y antes de modificar nada: si productDb está ligado a JPA,
+                // Hibernate ignora setVersion() y usa la versión que cargó
+                if (product.getVersion() != null && !product.getVersion().equals(productDb.getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(Product.class, id);
+                }
+                productDb.setName(product.getName());
+                productDb.setDescription(product.getDescription());
+                productDb.setPrice(product.getPrice());
+                productDb.setColor(product.getColor());
+                productDb.setStock(product.getStock());
+                productDb.setImageUrl(product.getImageUrl());
+                return ResponseEntity.status(HttpStatus.CREATED).body(service.save(productDb));
+            } catch (OptimisticLockingFailureException e) {
+                // Otro cambio se guardó después de que el cliente leyó el producto: 409 para que lo vuelva a leer
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
         }
         return ResponseEntity.notFound().build();
     }
@@ -1,17 +1,31 @@
 package com.enrique.springboot.backend.controllers;
 
 import com.enrique.springboot.backend.dto.CreateRentalRequest;
+import com.enrique.springboot.backend.dto.RentalPageResponse;
 import com.enrique.springboot.backend.dto.RentalResponse;
+import com.enrique.springboot.backend.dto.RentalSearchRequest;
 import com.enrique.springboot.backend.dto.UpdateRentalStatusRequest;
 import com.enrique.springboot.backend.entities.Client;
 import com.enrique.springboot.backend.entities.Rental;
+import com.enrique.springboot.backend.entities.RentalItem;
 import com.enrique.springboot.backend.entities.User;
 import com.enrique.springboot.backend.services.RentalService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,10 +34,15 @@ import java.util.Optional;
 @CrossOrigin({"http://localhost:5173", "http://localhost:4200"})
 public class RentalController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final RentalService rentalService;
+    private final ObjectMapper objectMapper;
 
-    public RentalController(RentalService rentalService) {
+    public RentalController(RentalService rentalService, ObjectMapper objectMapper) {
         this.rentalService = rentalService;
+        this.objectMapper = objectMapper;
     }
 
     // --------------------
@@ -36,6 +55,75 @@ public class RentalController {
                 .toList();
     }
 
+    // --------------------
+    // LISTAR RENTAS POR PÁGINAS
+    // --------------------
+    // GET /api/rentals/search?status=CREATED&clientId=1&from=...&to=...&size=20
+    // Siguiente página: mismos filtros + afterStartDate=<nextStartDate>&afterId=<nextId>
+    @GetMapping("/search")
+    public RentalPageResponse search(RentalSearchRequest criteria) {
+        int size = criteria.getSize() == null ? DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(criteria.getSize(), MAX_PAGE_SIZE));
+
+        // Se pide uno de más para saber si hay otra página
+        List<Rental> rentals = rentalService.search(criteria, size + 1);
+        boolean hasMore = rentals.size() > size;
+        if (hasMore) {
+            rentals = rentals.subList(0, size);
+        }
+
+        Rental last = hasMore ? rentals.get(rentals.size() - 1) : null;
+        return new RentalPageResponse(
+                rentals.stream().map(this::mapToResponse).toList(),
+                hasMore,
+                last != null ? last.getStartDate() : null,
+                last != null ? last.getId() : null
+        );
+    }
+
+    // --------------------
+    // EXPORTAR TODAS LAS RENTAS
+    // --------------------
+    // GET /api/rentals/export            -> NDJSON (una renta en JSON por línea)
+    // GET /api/rentals/export?format=csv -> CSV (una línea por producto rentado)
+    // Se escribe directo a la respuesta mientras se lee de la base de datos
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write("rentalId,startDate,endDate,status,total,address,clientId,client,userId,user,"
+                        + "productId,product,quantity,price\n");
+            }
+            try {
+                rentalService.exportAll(rental -> {
+                    try {
+                        if (csv) {
+                            writeCsvRows(writer, rental);
+                        } else {
+                            writer.write(objectMapper.writeValueAsString(mapToResponse(rental)));
+                            writer.write('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"rentals." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
     // --------------------
     // OBTENER RENTA POR ID
     // --------------------
@@ -65,6 +153,9 @@ public class RentalController {
         try {
             Rental rental = rentalService.updateRentalFromDto(id, request);
             return ResponseEntity.ok(mapToResponse(rental));
+        } catch (OptimisticLockingFailureException e) {
+            // Alguien más modificó la renta al mismo tiempo
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -119,10 +210,47 @@ public class RentalController {
                 rental.getAddress(),
                 clientInfo,
                 userInfo,
-                items
+                items,
+                rental.getVersion()
         );
     }
 
+    // --------------------
+    // HELPER: Escribir una renta como líneas CSV (una por item)
+    // --------------------
+    private void writeCsvRows(Writer writer, Rental rental) throws IOException {
+        for (RentalItem item : rental.getItems()) {
+            writer.write(String.join(",",
+                    String.valueOf(rental.getId()),
+                    String.valueOf(rental.getStartDate()),
+                    String.valueOf(rental.getEndDate()),
+                    rental.getStatus().name(),
+                    String.valueOf(rental.getTotal()),
+                    csvField(rental.getAddress()),
+                    String.valueOf(rental.getClient().getId()),
+                    csvField(rental.getClient().getNombre()),
+                    String.valueOf(rental.getUser().getId()),
+                    csvField(rental.getUser().getUsername()),
+                    String.valueOf(item.getProduct().getId()),
+                    csvField(item.getProduct().getName()),
+                    String.valueOf(item.getQuantity()),
+                    String.valueOf(item.getPrice())
+            ));
+            writer.write('\n');
+        }
+    }
+
+    // Entre comillas si trae comas, comillas o saltos de línea
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
     @PutMapping("/{id}/status")
     public ResponseEntity<RentalResponse> updateStatus(
             @PathVariable Long id,
@@ -131,6 +259,8 @@ public class RentalController {
         try {
             Rental rental = rentalService.updateStatus(id, status);
             return ResponseEntity.ok(mapToResponse(rental));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/users")
@@ -45,7 +46,12 @@ public class UserController {
     // -------------------
     @PostMapping
     public ResponseEntity<User> create(@RequestBody User user) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.save(user));
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(service.save(user));
+        } catch (RejectedExecutionException e) {
+            // Pool de hashes de contraseñas ocupado
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
 
     // -------------------
@@ -69,7 +75,12 @@ public class UserController {
                 userDb.setPassword(user.getPassword());
             }
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(service.save(userDb));
+            try {
+                return ResponseEntity.status(HttpStatus.CREATED).body(service.save(userDb));
+            } catch (RejectedExecutionException e) {
+                // Pool de hashes de contraseñas ocupado
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
         }
 
         return ResponseEntity.notFound().build();
@@ -0,0 +1,35 @@
+package com.enrique.springboot.backend.dto;
+
+import java.util.List;
+
+/* Resultado de recalcular desde cero los contadores del dashboard */
+public class AggregateReconcileResponse {
+
+    private int keysChecked;            // Llaves comparadas
+    private List<Drift> drifts;         // Llaves cuyo valor guardado no coincidía (ya corregidas)
+
+    public AggregateReconcileResponse(int keysChecked, List<Drift> drifts) {
+        this.keysChecked = keysChecked;
+        this.drifts = drifts;
+    }
+
+    public int getKeysChecked() { return keysChecked; }
+    public List<Drift> getDrifts() { return drifts; }
+
+    // DTO interno: diferencia encontrada en una llave
+    public static class Drift {
+        private String key;
+        private Long stored;            // Valor que tenía la tabla (null si no existía)
+        private Long actual;            // Valor recalculado
+
+        public Drift(String key, Long stored, Long actual) {
+            this.key = key;
+            this.stored = stored;
+            this.actual = actual;
+        }
+
+        public String getKey() { return key; }
+        public Long getStored() { return stored; }
+        public Long getActual() { return actual; }
+    }
+}
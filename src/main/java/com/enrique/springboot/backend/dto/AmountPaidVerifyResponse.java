@@ -0,0 +1,18 @@
+package com.enrique.springboot.backend.dto;
+
+import java.util.List;
+
+/* Resultado de comparar rentals.amount_paid contra la suma real de sus pagos */
+public class AmountPaidVerifyResponse {
+
+    private int mismatched;             // Rentas que no coincidían (ya corregidas)
+    private List<Long> rentalIds;       // Ids de esas rentas
+
+    public AmountPaidVerifyResponse(List<Long> rentalIds) {
+        this.mismatched = rentalIds.size();
+        this.rentalIds = rentalIds;
+    }
+
+    public int getMismatched() { return mismatched; }
+    public List<Long> getRentalIds() { return rentalIds; }
+}
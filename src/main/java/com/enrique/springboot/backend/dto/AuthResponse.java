@@ -5,6 +5,7 @@ package com.enrique.springboot.backend.dto;
 * Esta clase representa la respuesta que se enviamos al frontend
 * cuando el login es exitoso. Contiene:
 * - El token JWT para futuras peticiones
+* - El refresh token para renovarlo cuando venza
 * - Información básica del usuario (sin la contraseña) */
 
 public class AuthResponse {
@@ -12,9 +13,12 @@ public class AuthResponse {
     // Atributos
     // ===========
 
-    // El token JWT generado para el usuario
+    // El token JWT generado para el usuario (dura poco, ver jwt.expiration.time)
     private String token;
 
+    // Token para pedir un nuevo access token en POST /api/auth/refresh
+    private String refreshToken;
+
     // ID del usuario (útil para el frontend)
     private Long id;
 
@@ -41,8 +45,10 @@ public class AuthResponse {
     // Constructor con todos los campos
     // Facilita crear la respuesta en una sola línea
     // ==============================
-    public AuthResponse(String token, Long id, String username, String role, String imageUrl, String telefono) {
+    public AuthResponse(String token, String refreshToken, Long id, String username, String role,
+                        String imageUrl, String telefono) {
         this.token = token;
+        this.refreshToken = refreshToken;
         this.id = id;
         this.username = username;
         this.role = role;
@@ -62,6 +68,14 @@ public class AuthResponse {
         this.token = token;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,43 @@
+package com.enrique.springboot.backend.dto;
+
+import java.util.List;
+
+/* Disponibilidad de todo el catálogo, día por día, para un mes
+* Es una matriz compacta: por cada producto, un arreglo con las unidades
+* libres de cada día (posición 0 = día 1 del mes) */
+public class AvailabilityCalendarResponse {
+
+    private String month;       // Mes en formato YYYY-MM
+    private int days;           // Número de días del mes
+    private List<ProductDays> products;
+
+    public AvailabilityCalendarResponse(String month, int days, List<ProductDays> products) {
+        this.month = month;
+        this.days = days;
+        this.products = products;
+    }
+
+    public String getMonth() { return month; }
+    public int getDays() { return days; }
+    public List<ProductDays> getProducts() { return products; }
+
+    // DTO interno: unidades libres por día de un producto
+    public static class ProductDays {
+        private Long id;
+        private String name;
+        private Long totalStock;
+        private long[] availableStock;  // Mismo cálculo que ProductAvailabilityResponse, un valor por día
+
+        public ProductDays(Long id, String name, Long totalStock, long[] availableStock) {
+            this.id = id;
+            this.name = name;
+            this.totalStock = totalStock;
+            this.availableStock = availableStock;
+        }
+
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public Long getTotalStock() { return totalStock; }
+        public long[] getAvailableStock() { return availableStock; }
+    }
+}
@@ -0,0 +1,46 @@
+package com.enrique.springboot.backend.dto;
+
+import java.util.List;
+
+/* Resultado de una carga de pagos en lote (POST /api/payments/bulk)
+* Una fila por cada pago recibido, en el mismo orden */
+public class BulkPaymentResponse {
+
+    private int received;           // Filas recibidas
+    private int created;            // Pagos creados
+    private int failed;             // Filas rechazadas (ver error de cada una)
+    private List<RowResult> rows;   // Resultado de cada fila
+
+    public BulkPaymentResponse(List<RowResult> rows) {
+        this.received = rows.size();
+        this.created = (int) rows.stream().filter(row -> row.getError() == null).count();
+        this.failed = received - created;
+        this.rows = rows;
+    }
+
+    public int getReceived() { return received; }
+    public int getCreated() { return created; }
+    public int getFailed() { return failed; }
+    public List<RowResult> getRows() { return rows; }
+
+    /* Resultado de una fila: paymentId si se creó, error si se rechazó */
+    public static class RowResult {
+
+        private int row;            // Número de fila (empieza en 1)
+        private Long rentalId;
+        private Long paymentId;
+        private String error;
+
+        public RowResult(int row, Long rentalId, Long paymentId, String error) {
+            this.row = row;
+            this.rentalId = rentalId;
+            this.paymentId = paymentId;
+            this.error = error;
+        }
+
+        public int getRow() { return row; }
+        public Long getRentalId() { return rentalId; }
+        public Long getPaymentId() { return paymentId; }
+        public String getError() { return error; }
+    }
+}
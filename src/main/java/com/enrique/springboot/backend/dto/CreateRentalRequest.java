@@ -24,6 +24,10 @@ public class CreateRentalRequest {
     @NotEmpty
     private List<RentalItemRequest> items;
 
+    // Versión de la renta que se está editando (opcional, solo para PUT)
+    // Si ya no coincide, alguien más la modificó y la edición se rechaza con 409
+    private Long version;
+
     public LocalDateTime getStartDate() {
         return startDate;
     }
@@ -71,4 +75,12 @@ public class CreateRentalRequest {
     public void setItems(List<RentalItemRequest> items) {
         this.items = items;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
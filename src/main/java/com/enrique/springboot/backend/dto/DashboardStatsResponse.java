@@ -8,6 +8,8 @@ public class DashboardStatsResponse {
     private Long rentasPorEntregar;     // Rentas con status CREATED
     private Long rentasPorRecoger;      // Rentas con status DELIVERED
     private Long ingresosDelMes;        // Suma de totales del mes actual
+    private Long pagosDelMes;           // Suma de pagos recibidos en el mes actual
+    private Long saldoPendiente;        // Total de rentas no canceladas menos lo que se ha pagado de ellas
 
     // Constructor vacío
     public DashboardStatsResponse() {
@@ -15,10 +17,13 @@ public class DashboardStatsResponse {
 
     // Constructor con parámetros
 
-    public DashboardStatsResponse(Long rentasPorEntregar, Long rentasPorRecoger, Long ingresosDelMes) {
+    public DashboardStatsResponse(Long rentasPorEntregar, Long rentasPorRecoger, Long ingresosDelMes,
+                                  Long pagosDelMes, Long saldoPendiente) {
         this.rentasPorEntregar = rentasPorEntregar;
         this.rentasPorRecoger = rentasPorRecoger;
         this.ingresosDelMes = ingresosDelMes;
+        this.pagosDelMes = pagosDelMes;
+        this.saldoPendiente = saldoPendiente;
     }
 
     // Getters y Setters
@@ -47,4 +52,20 @@ public class DashboardStatsResponse {
     public void setIngresosDelMes(Long ingresosDelMes) {
         this.ingresosDelMes = ingresosDelMes;
     }
+
+    public Long getPagosDelMes() {
+        return pagosDelMes;
+    }
+
+    public void setPagosDelMes(Long pagosDelMes) {
+        this.pagosDelMes = pagosDelMes;
+    }
+
+    public Long getSaldoPendiente() {
+        return saldoPendiente;
+    }
+
+    public void setSaldoPendiente(Long saldoPendiente) {
+        this.saldoPendiente = saldoPendiente;
+    }
 }
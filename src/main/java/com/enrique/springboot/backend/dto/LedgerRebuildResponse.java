@@ -0,0 +1,19 @@
+package com.enrique.springboot.backend.dto;
+
+/* Resultado de reconstruir el libro de reservas de inventario */
+public class LedgerRebuildResponse {
+
+    private long bucketsBefore;     // Horas con reservas que tenía el libro
+    private long bucketsAfter;      // Horas con reservas calculadas desde las rentas
+    private long mismatchedBuckets; // Horas que no coincidían (0 = el libro estaba bien)
+
+    public LedgerRebuildResponse(long bucketsBefore, long bucketsAfter, long mismatchedBuckets) {
+        this.bucketsBefore = bucketsBefore;
+        this.bucketsAfter = bucketsAfter;
+        this.mismatchedBuckets = mismatchedBuckets;
+    }
+
+    public long getBucketsBefore() { return bucketsBefore; }
+    public long getBucketsAfter() { return bucketsAfter; }
+    public long getMismatchedBuckets() { return mismatchedBuckets; }
+}
@@ -1,5 +1,8 @@
 package com.enrique.springboot.backend.dto;
 
+/* Disponibilidad de un producto en un rango de fechas
+* rentedQuantity es el máximo de unidades ocupadas AL MISMO TIEMPO dentro del rango
+* (dos rentas que no se cruzan entre sí no se suman) */
 public class ProductAvailabilityResponse {
 
     private Long id;
@@ -0,0 +1,35 @@
+package com.enrique.springboot.backend.dto;
+
+/* Estado del caché del catálogo de productos (GET /api/admin/product-cache) */
+public class ProductCacheStatsResponse {
+
+    private boolean enabled;        // products.cache.enabled
+    private boolean loaded;         // true si hay una foto del catálogo en memoria
+    private int size;               // Productos en la foto actual
+    private long generation;        // Número de invalidaciones desde el arranque
+    private long hits;              // Lecturas respondidas desde memoria
+    private long misses;            // Lecturas que tuvieron que ir a la base de datos
+    private long invalidations;     // Veces que se descartó la foto (save/delete)
+    private double hitRatio;        // hits / (hits + misses)
+
+    public ProductCacheStatsResponse(boolean enabled, boolean loaded, int size, long generation,
+                                     long hits, long misses, long invalidations) {
+        this.enabled = enabled;
+        this.loaded = loaded;
+        this.size = size;
+        this.generation = generation;
+        this.hits = hits;
+        this.misses = misses;
+        this.invalidations = invalidations;
+        this.hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public boolean isLoaded() { return loaded; }
+    public int getSize() { return size; }
+    public long getGeneration() { return generation; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getInvalidations() { return invalidations; }
+    public double getHitRatio() { return hitRatio; }
+}
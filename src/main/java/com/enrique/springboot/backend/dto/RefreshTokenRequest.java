@@ -0,0 +1,15 @@
+package com.enrique.springboot.backend.dto;
+
+/* DTO para POST /api/auth/refresh y POST /api/auth/logout */
+public class RefreshTokenRequest {
+
+    private String refreshToken;
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
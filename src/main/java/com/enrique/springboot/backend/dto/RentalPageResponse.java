@@ -0,0 +1,26 @@
+package com.enrique.springboot.backend.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/* Una página de rentas ordenadas por (startDate, id)
+* Para la siguiente página se manda afterStartDate = nextStartDate y afterId = nextId */
+public class RentalPageResponse {
+
+    private List<RentalResponse> items;
+    private boolean hasMore;                // true si hay más rentas después de esta página
+    private LocalDateTime nextStartDate;    // null si no hay más
+    private Long nextId;                    // null si no hay más
+
+    public RentalPageResponse(List<RentalResponse> items, boolean hasMore, LocalDateTime nextStartDate, Long nextId) {
+        this.items = items;
+        this.hasMore = hasMore;
+        this.nextStartDate = nextStartDate;
+        this.nextId = nextId;
+    }
+
+    public List<RentalResponse> getItems() { return items; }
+    public boolean isHasMore() { return hasMore; }
+    public LocalDateTime getNextStartDate() { return nextStartDate; }
+    public Long getNextId() { return nextId; }
+}
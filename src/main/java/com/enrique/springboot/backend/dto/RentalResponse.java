@@ -14,10 +14,12 @@ public class RentalResponse {
     private ClientInfo client;
     private UserInfo user;
     private List<RentalItemResponse> items;
+    private Long version;
 
     // Constructor completo
     public RentalResponse(Long id, LocalDateTime startDate, LocalDateTime endDate, String status,
-                          Long total, String address, ClientInfo client, UserInfo user, List<RentalItemResponse> items) {
+                          Long total, String address, ClientInfo client, UserInfo user, List<RentalItemResponse> items,
+                          Long version) {
         this.id = id;
         this.startDate = startDate;
         this.endDate = endDate;
@@ -27,6 +29,7 @@ public class RentalResponse {
         this.client = client;
         this.user = user;
         this.items = items;
+        this.version = version;
     }
 
     public Long getId() {
@@ -65,6 +68,11 @@ public class RentalResponse {
         return items;
     }
 
+    // Se manda de regreso en el PUT para detectar ediciones simultáneas
+    public Long getVersion() {
+        return version;
+    }
+
     // DTO interno para cliente
     public static class ClientInfo {
         private Long id;
@@ -0,0 +1,94 @@
+package com.enrique.springboot.backend.dto;
+
+import com.enrique.springboot.backend.enums.RentalStatus;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/* Filtros y cursor para listar rentas por páginas (GET /api/rentals/search)
+* Todos los filtros son opcionales
+* El cursor (afterStartDate, afterId) es el nextStartDate/nextId de la página anterior */
+public class RentalSearchRequest {
+
+    private RentalStatus status;
+    private Long clientId;
+    private Long userId;
+
+    // Rentas que se cruzan con [from, to]
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    // Cursor: devolver rentas posteriores a (afterStartDate, afterId)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime afterStartDate;
+    private Long afterId;
+
+    // Tamaño de página (se limita a 1..100)
+    private Integer size;
+
+    public RentalStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RentalStatus status) {
+        this.status = status;
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(Long clientId) {
+        this.clientId = clientId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public LocalDateTime getAfterStartDate() {
+        return afterStartDate;
+    }
+
+    public void setAfterStartDate(LocalDateTime afterStartDate) {
+        this.afterStartDate = afterStartDate;
+    }
+
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(Long afterId) {
+        this.afterId = afterId;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+}
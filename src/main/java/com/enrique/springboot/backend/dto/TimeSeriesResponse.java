@@ -0,0 +1,26 @@
+package com.enrique.springboot.backend.dto;
+
+import java.util.List;
+
+/* Series de tiempo para la gráfica del dashboard
+* Arreglos paralelos: la posición i de revenue y collected corresponde a buckets[i]
+* Los periodos sin movimientos aparecen con 0 */
+public class TimeSeriesResponse {
+
+    private String granularity;     // DAY, WEEK o MONTH
+    private List<String> buckets;   // Fecha de inicio de cada periodo (YYYY-MM-DD)
+    private long[] revenue;         // Suma de totales de rentas que inician en el periodo (sin canceladas)
+    private long[] collected;       // Suma de pagos recibidos en el periodo
+
+    public TimeSeriesResponse(String granularity, List<String> buckets, long[] revenue, long[] collected) {
+        this.granularity = granularity;
+        this.buckets = buckets;
+        this.revenue = revenue;
+        this.collected = collected;
+    }
+
+    public String getGranularity() { return granularity; }
+    public List<String> getBuckets() { return buckets; }
+    public long[] getRevenue() { return revenue; }
+    public long[] getCollected() { return collected; }
+}
@@ -0,0 +1,25 @@
+package com.enrique.springboot.backend.dto;
+
+import java.util.List;
+
+/* Una página del reporte de saldos pendientes, ordenada por saldo y id (mayor primero)
+* Para la siguiente página se manda afterOwed = nextOwed y afterId = nextId */
+public class UnpaidRentalPageResponse {
+
+    private List<UnpaidRentalResponse> items;
+    private boolean hasMore;        // true si hay más rentas después de esta página
+    private Long nextOwed;          // null si no hay más
+    private Long nextId;            // null si no hay más
+
+    public UnpaidRentalPageResponse(List<UnpaidRentalResponse> items, boolean hasMore, Long nextOwed, Long nextId) {
+        this.items = items;
+        this.hasMore = hasMore;
+        this.nextOwed = nextOwed;
+        this.nextId = nextId;
+    }
+
+    public List<UnpaidRentalResponse> getItems() { return items; }
+    public boolean isHasMore() { return hasMore; }
+    public Long getNextOwed() { return nextOwed; }
+    public Long getNextId() { return nextId; }
+}
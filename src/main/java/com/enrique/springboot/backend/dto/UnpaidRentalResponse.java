@@ -0,0 +1,40 @@
+package com.enrique.springboot.backend.dto;
+
+import java.time.LocalDateTime;
+
+/* Una renta que aún debe dinero (reporte de saldos pendientes) */
+public class UnpaidRentalResponse {
+
+    private Long rentalId;
+    private Long clientId;
+    private String clientName;
+    private String status;
+    private LocalDateTime endDate;
+    private Long total;             // Total de la renta
+    private Long paid;              // Suma de pagos
+    private Long owed;              // total - paid
+    private long daysSinceEnd;      // Días desde que terminó la renta
+
+    public UnpaidRentalResponse(Long rentalId, Long clientId, String clientName, String status,
+                                LocalDateTime endDate, Long total, Long paid, long daysSinceEnd) {
+        this.rentalId = rentalId;
+        this.clientId = clientId;
+        this.clientName = clientName;
+        this.status = status;
+        this.endDate = endDate;
+        this.total = total;
+        this.paid = paid;
+        this.owed = total - paid;
+        this.daysSinceEnd = daysSinceEnd;
+    }
+
+    public Long getRentalId() { return rentalId; }
+    public Long getClientId() { return clientId; }
+    public String getClientName() { return clientName; }
+    public String getStatus() { return status; }
+    public LocalDateTime getEndDate() { return endDate; }
+    public Long getTotal() { return total; }
+    public Long getPaid() { return paid; }
+    public Long getOwed() { return owed; }
+    public long getDaysSinceEnd() { return daysSinceEnd; }
+}
@@ -0,0 +1,70 @@
+package com.enrique.springboot.backend.entities;
+
+import com.enrique.springboot.backend.enums.RentalStatus;
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/*
+* Contador precalculado para el dashboard
+* Cada fila es una llave y su valor, por ejemplo:
+* - STATUS:CREATED   -> número de rentas con ese status
+* - REVENUE:2025-03  -> suma de totales de rentas que inician en ese mes (sin canceladas)
+* - PAYMENTS:2025-03 -> suma de pagos recibidos en ese mes
+* - OUTSTANDING      -> totales de rentas no canceladas menos los pagos de esas rentas
+* - REVENUE_DAY:2025-03-07 y PAYMENTS_DAY:2025-03-07 -> lo mismo por día, para las series de tiempo
+*   (el formato ISO hace que un rango de fechas sea un rango de llaves)
+* Se actualizan en la misma transacción que las rentas y los pagos (DashboardAggregateService)
+*/
+@Entity
+@Table(name = "dashboard_aggregates")
+public class DashboardAggregate {
+
+    @Id
+    @Column(name = "aggregate_key", length = 64)
+    private String key;
+
+    @Column(name = "agg_value", nullable = false)
+    private Long value;
+
+    public static final String OUTSTANDING_KEY = "OUTSTANDING";
+    public static final String REVENUE_DAY_PREFIX = "REVENUE_DAY:";
+    public static final String PAYMENTS_DAY_PREFIX = "PAYMENTS_DAY:";
+
+    public static String statusKey(RentalStatus status) {
+        return "STATUS:" + status.name();
+    }
+
+    public static String revenueKey(YearMonth month) {
+        return "REVENUE:" + month;
+    }
+
+    public static String paymentsKey(YearMonth month) {
+        return "PAYMENTS:" + month;
+    }
+
+    public static String revenueDayKey(LocalDate day) {
+        return REVENUE_DAY_PREFIX + day;
+    }
+
+    public static String paymentsDayKey(LocalDate day) {
+        return PAYMENTS_DAY_PREFIX + day;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public Long getValue() {
+        return value;
+    }
+
+    public void setValue(Long value) {
+        this.value = value;
+    }
+}
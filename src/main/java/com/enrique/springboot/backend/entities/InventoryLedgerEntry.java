@@ -0,0 +1,67 @@
+package com.enrique.springboot.backend.entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/*
+* Libro de reservas de inventario
+* Una fila por producto y por hora: cuántas unidades están reservadas en esa hora
+* Lo mantiene InventoryLedgerService en la misma transacción que las rentas,
+* así la disponibilidad de un rango es un MAX sobre pocas filas indexadas
+*/
+@Entity
+@Table(name = "inventory_ledger",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"product_id", "bucket_start"})
+        })
+public class InventoryLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Producto reservado
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    // Inicio de la hora (minutos y segundos en cero)
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    // Unidades reservadas durante esa hora
+    @Column(nullable = false)
+    private Long reserved;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(Long reserved) {
+        this.reserved = reserved;
+    }
+}
@@ -9,7 +9,11 @@ import java.time.LocalDateTime;
 * Permite multiples pagos parciales con historial de fechas
 */
 @Entity
-@Table(name = "payments")
+@Table(name = "payments",
+        indexes = {
+                // Rangos por fecha: pagos del mes y series de tiempo del dashboard
+                @Index(name = "idx_payments_payment_date", columnList = "payment_date")
+        })
 public class Payment {
 
     @Id
@@ -33,6 +37,11 @@ public class Payment {
     @Column(length = 255)
     private String notes;
 
+    // Llave de idempotencia con la que se creó (SHA-256 de usuario + header Idempotency-Key)
+    // Única: si la misma petición llega dos veces, la base de datos rechaza el duplicado
+    @Column(name = "idempotency_key", length = 150, unique = true)
+    private String idempotencyKey;
+
     // Constructor vacío (requerido por JPA)
     public Payment() {
     }
@@ -86,4 +95,12 @@ public class Payment {
     public void setNotes(String notes) {
         this.notes = notes;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
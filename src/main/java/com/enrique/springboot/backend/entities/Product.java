@@ -1,6 +1,7 @@
 package com.enrique.springboot.backend.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Table(name = "products")
@@ -28,6 +29,13 @@ public class Product {
     @Column(name = "image_url")
     private String imageUrl;
 
+    // Versión para control de concurrencia optimista de las ediciones del catálogo
+    // Las reservas no la cambian (usan ProductBookingVersion)
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -83,4 +91,12 @@ public class Product {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
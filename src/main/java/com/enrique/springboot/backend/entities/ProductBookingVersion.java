@@ -0,0 +1,42 @@
+package com.enrique.springboot.backend.entities;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+/*
+* Versión de reservas de un producto (estrategia optimistic de RentalServiceImpl)
+* Cada reserva incrementa esta versión al hacer commit; si otra transacción reservó
+* el mismo producto primero, el commit falla y la reserva se reintenta
+* Está separada de Product.version para que reservar no invalide las ediciones del
+* catálogo (PUT /api/products/{id} compara contra Product.version)
+* Una fila por producto, se crea la primera vez que se reserva
+*/
+@Entity
+@Table(name = "product_booking_versions")
+public class ProductBookingVersion {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -2,12 +2,21 @@ package com.enrique.springboot.backend.entities;
 
 import com.enrique.springboot.backend.enums.RentalStatus;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "rentals")
+@Table(name = "rentals",
+        indexes = {
+                // Paginación por llave (startDate, id) en GET /api/rentals/search
+                @Index(name = "idx_rentals_start_date_id", columnList = "start_date, id"),
+                // Reporte de rentas con saldo: filtra por status y antigüedad de end_date
+                @Index(name = "idx_rentals_status_end_date", columnList = "status, end_date"),
+                // Reporte de rentas con saldo: ordena y pagina por llave (balance, id)
+                @Index(name = "idx_rentals_balance_id", columnList = "balance, id")
+        })
 public class Rental {
 
     @Id
@@ -57,6 +66,29 @@ public class Rental {
     @OneToMany(mappedBy = "rental", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Payment> payments;
 
+    /* Suma de los pagos de la renta, guardada para no calcularla en cada consulta
+    * - No se escribe al guardar la renta (insertable/updatable = false): solo la cambia
+    *   PaymentServiceImpl con UPDATE rentals SET amount_paid = amount_paid + ?
+    * - Un proceso periódico la compara contra los pagos y corrige diferencias */
+    @ColumnDefault("0")
+    @Column(name = "amount_paid", nullable = false, insertable = false, updatable = false)
+    private Long amountPaid = 0L;
+
+    /* Saldo pendiente (total - amount_paid), calculado por MySQL como columna generada
+    * - STORED para poder indexarla: el reporte de saldos ordena y pagina por (balance, id)
+    *   sin calcular la resta en cada fila
+    * - Hibernate nunca la escribe; se actualiza sola al cambiar total o amount_paid */
+    @Column(name = "balance", insertable = false, updatable = false,
+            columnDefinition = "BIGINT GENERATED ALWAYS AS (total - amount_paid) STORED")
+    private Long balance;
+
+    // Versión para control de concurrencia optimista
+    // Se incrementa en cada cambio; si dos personas guardan a la vez, la segunda falla
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -129,6 +161,16 @@ public class Rental {
         this.total = total;
     }
 
+    /* Obtiene el total pagado de esta renta (suma de sus pagos)
+    * Lo mantiene PaymentServiceImpl; setAmountPaid solo cambia la copia en memoria*/
+    public Long getAmountPaid() {
+        return amountPaid;
+    }
+
+    public void setAmountPaid(Long amountPaid) {
+        this.amountPaid = amountPaid;
+    }
+
     /* Obtiene la lista de pagos/anticipos de esta renta
     * Permite ver el historial completo de pagos*/
     public List<Payment> getPayments() {
@@ -140,4 +182,16 @@ public class Rental {
     public void setPayments(List<Payment> payments) {
         this.payments = payments;
     }
+
+    public Long getBalance() {
+        return balance;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
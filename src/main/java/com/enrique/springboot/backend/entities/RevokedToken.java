@@ -0,0 +1,89 @@
+package com.enrique.springboot.backend.entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/*
+* Lista de access tokens revocados (respaldo en base de datos del denylist en memoria)
+* Dos tipos de fila:
+* - jti con valor: ese token en particular (logout)
+* - jti null: todos los tokens de username emitidos antes de revokedAt
+*   (usuario eliminado o sesiones cerradas por un administrador)
+* expiresAt = cuándo vence el último token afectado; después la fila ya no sirve y se borra
+*/
+@Entity
+@Table(name = "revoked_tokens",
+        indexes = {
+                @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at")
+        })
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Id del token (claim "jti"); null = todos los tokens del usuario
+    @Column(length = 36)
+    private String jti;
+
+    // Usuario (claim "sub")
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public RevokedToken() {
+    }
+
+    public RevokedToken(String jti, String username, LocalDateTime revokedAt, LocalDateTime expiresAt) {
+        this.jti = jti;
+        this.username = username;
+        this.revokedAt = revokedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public LocalDateTime getRevokedAt() {
+        return revokedAt;
+    }
+
+    public void setRevokedAt(LocalDateTime revokedAt) {
+        this.revokedAt = revokedAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.enrique.springboot.backend.enums;
+
+// Tamaño de cada punto en las series de tiempo del dashboard
+public enum TimeGranularity {
+    DAY,
+    WEEK,   // Semanas de lunes a domingo
+    MONTH
+}
@@ -0,0 +1,7 @@
+package com.enrique.springboot.backend.events;
+
+/* Evento que se publica cuando un pago se crea, se edita o se elimina
+* Lo escuchan los componentes que muestran datos derivados de los pagos (dashboard en vivo)
+* En la carga masiva se publica uno por renta con paymentId = null */
+public record PaymentChangedEvent(Long paymentId, Long rentalId) {
+}
@@ -0,0 +1,6 @@
+package com.enrique.springboot.backend.events;
+
+/* Evento que se publica cuando un producto se crea, se edita o se elimina
+* Lo escuchan los cachés que dependen del catálogo */
+public record ProductChangedEvent(Long productId) {
+}
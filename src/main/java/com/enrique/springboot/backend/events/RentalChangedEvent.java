@@ -0,0 +1,7 @@
+package com.enrique.springboot.backend.events;
+
+/* Evento que se publica cuando una renta se crea, se edita, cambia de status o se elimina
+* Los componentes que guardan datos derivados de las rentas (índices, cachés)
+* lo escuchan para mantenerse al día */
+public record RentalChangedEvent(Long rentalId) {
+}
@@ -0,0 +1,40 @@
+package com.enrique.springboot.backend.repositories;
+
+import com.enrique.springboot.backend.entities.DashboardAggregate;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface DashboardAggregateRepository extends CrudRepository<DashboardAggregate, String> {
+
+    // Suma delta al contador (lo crea si no existe) sin leerlo antes
+    @Modifying
+    @Query(value = """
+            INSERT INTO dashboard_aggregates (aggregate_key, agg_value)
+            VALUES (:key, :delta)
+            ON DUPLICATE KEY UPDATE agg_value = agg_value + :delta
+            """, nativeQuery = true)
+    void addToValue(@Param("key") String key, @Param("delta") long delta);
+
+    // Fija el valor del contador (lo crea si no existe)
+    @Modifying
+    @Query(value = """
+            INSERT INTO dashboard_aggregates (aggregate_key, agg_value)
+            VALUES (:key, :value)
+            ON DUPLICATE KEY UPDATE agg_value = :value
+            """, nativeQuery = true)
+    void setValue(@Param("key") String key, @Param("value") long value);
+
+    // Contadores con llave entre from y to (incluidas), por ejemplo todos los días de un rango
+    List<DashboardAggregate> findByKeyBetween(String from, String to);
+
+    // Todos los contadores, bloqueados hasta el fin de la transacción (para reconciliar)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM DashboardAggregate a ORDER BY a.key")
+    List<DashboardAggregate> findAllForUpdate();
+}
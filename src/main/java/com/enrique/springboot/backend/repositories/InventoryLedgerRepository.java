@@ -0,0 +1,40 @@
+package com.enrique.springboot.backend.repositories;
+
+import com.enrique.springboot.backend.entities.InventoryLedgerEntry;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface InventoryLedgerRepository extends CrudRepository<InventoryLedgerEntry, Long> {
+
+    // Máximo de unidades reservadas por producto entre dos horas (ambas incluidas)
+    // Cada fila es [productId, maxReservado]; los productos sin reservas no aparecen
+    @Query("""
+            SELECT l.productId, MAX(l.reserved)
+            FROM InventoryLedgerEntry l
+            WHERE l.productId IN :productIds
+            AND l.bucketStart >= :fromBucket
+            AND l.bucketStart <= :toBucket
+            GROUP BY l.productId
+            """)
+    List<Object[]> findMaxReservedByProducts(
+            @Param("productIds") Collection<Long> productIds,
+            @Param("fromBucket") LocalDateTime fromBucket,
+            @Param("toBucket") LocalDateTime toBucket
+    );
+
+    // Todas las horas con unidades reservadas (para verificar contra las rentas)
+    // Cada fila es [productId, bucketStart, reserved]
+    @Query("SELECT l.productId, l.bucketStart, l.reserved FROM InventoryLedgerEntry l WHERE l.reserved <> 0")
+    List<Object[]> findAllNonZero();
+
+    // Vacía el libro antes de reconstruirlo
+    @Modifying
+    @Query("DELETE FROM InventoryLedgerEntry l")
+    int deleteAllEntries();
+}
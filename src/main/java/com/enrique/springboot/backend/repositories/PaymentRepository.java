@@ -1,12 +1,18 @@
 package com.enrique.springboot.backend.repositories;
 
 import com.enrique.springboot.backend.entities.Payment;
+import com.enrique.springboot.backend.enums.RentalStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /* Repositorio para operaciones CRUD de pagos/anticipos
 * Extiende CrudRepository que provee: save, findById, findAllm, delete, etc. */
@@ -22,6 +28,10 @@ public interface PaymentRepository extends CrudRepository<Payment, Long> {
     // El más antiguo primero, el más reciente al final
     List<Payment> findByRentalIdOrderByPaymentDateAsc(Long rentalId);
 
+    // Busca el pago creado con una llave de idempotencia
+    // Uso: responder una petición repetida que la memoria ya había olvidado
+    Optional<Payment> findByIdempotencyKey(String idempotencyKey);
+
 
     // Calcula la suma total de todos los pagos de una renta
     // COALESCE: Si no hay pagos, retorna 0 en lugar de null
@@ -49,6 +59,63 @@ public interface PaymentRepository extends CrudRepository<Payment, Long> {
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate
     );
+
+    // Suma de pagos por mes, cada fila es [año, mes, monto]
+    // Uso: recalcular los contadores del dashboard
+    @Query("""
+            SELECT YEAR(p.paymentDate), MONTH(p.paymentDate), SUM(p.amount)
+            FROM Payment p
+            GROUP BY YEAR(p.paymentDate), MONTH(p.paymentDate)
+            """)
+    List<Object[]> sumAmountGroupByMonth();
+
+    // Total, pagado y status de varias rentas en una sola consulta
+    // Cada fila es [rentalId, total, pagado, status]; usa el total pagado guardado en la renta
+    // Uso: columna "saldo pendiente" de una lista de rentas
+    @Query("""
+            SELECT r.id, r.total, r.amountPaid, r.status
+            FROM Rental r
+            WHERE r.id IN :rentalIds
+            ORDER BY r.id
+            """)
+    List<Object[]> findBalancesByRentalIds(@Param("rentalIds") Collection<Long> rentalIds);
+
+    // Igual que findBalancesByRentalIds, pero de todas las rentas con esos status que aún deben dinero
+    @Query("""
+            SELECT r.id, r.total, r.amountPaid, r.status
+            FROM Rental r
+            WHERE r.status IN :statuses
+            AND r.total > r.amountPaid
+            ORDER BY r.id
+            """)
+    List<Object[]> findOpenBalances(@Param("statuses") List<RentalStatus> statuses);
+
+    // Suma de pagos por día, cada fila es [fecha, monto]
+    // from y to son opcionales (null = sin límite); to es exclusivo
+    // Uso: series de tiempo del dashboard (usa el índice de payment_date)
+    @Query("""
+            SELECT CAST(p.paymentDate AS LocalDate), SUM(p.amount)
+            FROM Payment p
+            WHERE (:fromDate IS NULL OR p.paymentDate >= :fromDate)
+            AND (:toDate IS NULL OR p.paymentDate < :toDate)
+            GROUP BY CAST(p.paymentDate AS LocalDate)
+            """)
+    List<Object[]> sumAmountGroupByDay(
+            @Param("fromDate") LocalDateTime from,
+            @Param("toDate") LocalDateTime to
+    );
+
+    // Suma de pagos de las rentas con los status indicados
+    // Uso: recalcular el saldo pendiente del dashboard
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.rental.status IN :statuses")
+    Long sumAmountByRentalStatuses(@Param("statuses") List<RentalStatus> statuses);
+
+    // Monto, fecha y renta guardados en la base de datos, cada fila es [amount, paymentDate, rentalId, rentalStatus]
+    // FlushMode COMMIT: no escribe antes los cambios pendientes, así se leen los valores anteriores
+    // Uso: saber cuánto restar de los contadores al editar un pago
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("SELECT p.amount, p.paymentDate, r.id, r.status FROM Payment p JOIN p.rental r WHERE p.id = :id")
+    List<Object[]> findStoredAmountAndDate(@Param("id") Long id);
 }
 
 /*
@@ -58,4 +125,8 @@ public interface PaymentRepository extends CrudRepository<Payment, Long> {
 * sumAmountByRentalId -> Calcular total pagado de una renta
 * findByPaymentDateBeetween -> Para la gráfica de ingresos del mes
 * sumAmountByDateRange -> Total de ingresos en un periodo
+* findBalancesByRentalIds / findOpenBalances -> Saldos de muchas rentas en una consulta
+* sumAmountGroupByMonth -> Pagos por mes (reconciliar contadores)
+* sumAmountGroupByDay -> Pagos por día (series de tiempo)
+* findStoredAmountAndDate -> Valores anteriores de un pago (antes de editarlo)
 */
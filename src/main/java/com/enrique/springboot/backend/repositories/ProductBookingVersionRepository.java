@@ -0,0 +1,29 @@
+package com.enrique.springboot.backend.repositories;
+
+import com.enrique.springboot.backend.entities.ProductBookingVersion;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductBookingVersionRepository extends CrudRepository<ProductBookingVersion, Long> {
+
+    // Carga las versiones de reserva sin bloquearlas, pero las incrementa al hacer commit
+    // Si otra transacción reservó alguno de los productos primero, el commit falla
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT v FROM ProductBookingVersion v WHERE v.productId IN :ids ORDER BY v.productId")
+    List<ProductBookingVersion> findAllByIdWithVersionIncrement(@Param("ids") Collection<Long> ids);
+
+    // Crea las filas que falten (solo de productos que existen); las que ya existen no se tocan
+    @Modifying
+    @Query(value = """
+            INSERT IGNORE INTO product_booking_versions (product_id, version)
+            SELECT p.id, 0 FROM products p WHERE p.id IN :ids
+            """, nativeQuery = true)
+    int insertMissing(@Param("ids") Collection<Long> ids);
+}
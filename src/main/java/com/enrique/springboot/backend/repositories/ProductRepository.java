@@ -1,7 +1,29 @@
 package com.enrique.springboot.backend.repositories;
 
 import com.enrique.springboot.backend.entities.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface ProductRepository extends CrudRepository<Product, Long> {
+
+    // Carga y bloquea (SELECT ... FOR UPDATE) los productos indicados hasta el fin de la transacción
+    // Siempre en orden de id para que dos transacciones no se bloqueen entre sí (deadlock)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Carga los productos indicados sin bloquearlos (reservas con estrategia optimistic,
+    // que detectan conflictos con ProductBookingVersionRepository)
+    List<Product> findByIdInOrderById(Collection<Long> ids);
+
+    // Bloquea todos los productos (para reconstruir el libro de reservas sin reservas en paralelo)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    List<Product> lockAll();
 }
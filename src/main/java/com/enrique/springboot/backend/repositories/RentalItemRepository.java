@@ -2,48 +2,95 @@ package com.enrique.springboot.backend.repositories;
 
 import com.enrique.springboot.backend.entities.RentalItem;
 import com.enrique.springboot.backend.enums.RentalStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface RentalItemRepository extends CrudRepository<RentalItem, Long> {
 
-    // Total de unidades rentadas de un producto en un rango de fechas y horas
+    // Reservas de las rentas con los status indicados (para el índice en memoria)
+    // Cada fila es [rentalId, productId, startDate, endDate, quantity]
     @Query("""
-            SELECT COALESCE(SUM(ri.quantity), 0)
+            SELECT r.id, ri.product.id, r.startDate, r.endDate, ri.quantity
             FROM RentalItem ri
             JOIN ri.rental r
-            WHERE ri.product.id = :productId
+            WHERE r.status IN :statuses
+            """)
+    List<Object[]> findBookingsByStatuses(@Param("statuses") List<RentalStatus> statuses);
+
+    // Reservas de una sola renta, vacío si la renta ya no existe o no tiene esos status
+    // Cada fila es [rentalId, productId, startDate, endDate, quantity]
+    @Query("""
+            SELECT r.id, ri.product.id, r.startDate, r.endDate, ri.quantity
+            FROM RentalItem ri
+            JOIN ri.rental r
+            WHERE r.id = :rentalId
             AND r.status IN :statuses
+            """)
+    List<Object[]> findBookingsByRentalAndStatuses(
+            @Param("rentalId") Long rentalId,
+            @Param("statuses") List<RentalStatus> statuses
+    );
+
+    // Reservas que se cruzan con un rango de fechas, de todos los productos
+    // Con ellas se calcula el máximo de unidades ocupadas al mismo tiempo (no la suma)
+    // Cada fila es [rentalId, productId, startDate, endDate, quantity]
+    @Query("""
+            SELECT r.id, ri.product.id, r.startDate, r.endDate, ri.quantity
+            FROM RentalItem ri
+            JOIN ri.rental r
+            WHERE r.status IN :statuses
             AND r.startDate <= :endDate
             AND r.endDate >= :startDate
             """)
-    Long getRentedQuantityByProductAndDates(
-            @Param("productId") Long productId,
+    List<Object[]> findBookingsBetweenDates(
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
             @Param("statuses") List<RentalStatus> statuses
     );
 
-    // Total de unidades rentadas excluyendo una renta específica (para edición)
+    // Reservas de varios productos que se cruzan con un rango de fechas
+    // Cada fila es [rentalId, productId, startDate, endDate, quantity]
     @Query("""
-            SELECT COALESCE(SUM(ri.quantity), 0)
+            SELECT r.id, ri.product.id, r.startDate, r.endDate, ri.quantity
             FROM RentalItem ri
             JOIN ri.rental r
-            WHERE ri.product.id = :productId
+            WHERE ri.product.id IN :productIds
             AND r.status IN :statuses
             AND r.startDate <= :endDate
             AND r.endDate >= :startDate
-            AND r.id <> :excludeRentalId
             """)
-    Long getRentedQuantityByProductAndDatesExcludingRental(
-            @Param("productId") Long productId,
+    List<Object[]> findBookingsByProductsBetweenDates(
+            @Param("productIds") Collection<Long> productIds,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
-            @Param("statuses") List<RentalStatus> statuses,
-            @Param("excludeRentalId") Long excludeRentalId
+            @Param("statuses") List<RentalStatus> statuses
     );
+
+    /* Todos los items con su renta, cliente, usuario y producto, ordenados por renta
+    * Para exportar: se lee fila por fila sin cargar todo en memoria
+    * - fetch size Integer.MIN_VALUE hace que el driver de MySQL entregue las filas
+    *   conforme llegan en lugar de traer todo el resultado
+    * - Debe consumirse dentro de una transacción y cerrarse al terminar */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT ri FROM RentalItem ri
+            JOIN FETCH ri.rental r
+            JOIN FETCH r.client
+            JOIN FETCH r.user
+            JOIN FETCH ri.product
+            ORDER BY r.id, ri.id
+            """)
+    Stream<RentalItem> streamAllWithRental();
 }
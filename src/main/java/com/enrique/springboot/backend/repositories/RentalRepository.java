@@ -2,16 +2,64 @@ package com.enrique.springboot.backend.repositories;
 
 import com.enrique.springboot.backend.entities.Rental;
 import com.enrique.springboot.backend.enums.RentalStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface RentalRepository extends CrudRepository<Rental, Long> {
 
+    // Todas las rentas con cliente, usuario, items y producto de cada item en una sola consulta
+    // Evita las consultas extra por renta (N+1) al armar RentalResponse
+    @EntityGraph(attributePaths = {"client", "user", "items", "items.product"})
+    @Query("SELECT r FROM Rental r ORDER BY r.id")
+    List<Rental> findAllWithDetails();
+
+    // Una renta con cliente, usuario, items y productos en una sola consulta
+    @EntityGraph(attributePaths = {"client", "user", "items", "items.product"})
+    @Query("SELECT r FROM Rental r WHERE r.id = :id")
+    Optional<Rental> findByIdWithDetails(@Param("id") Long id);
+
+    /* Ids de una página de rentas, paginando por llave (keyset) sobre (startDate, id)
+    * En lugar de OFFSET se continúa después de la última renta de la página anterior,
+    * así el costo no crece con el número de páginas ni con el tamaño de la tabla
+    * (usa el índice idx_rentals_start_date_id). Los filtros en null no se aplican */
+    @Query("""
+            SELECT r.id FROM Rental r
+            WHERE (:status IS NULL OR r.status = :status)
+            AND (:clientId IS NULL OR r.client.id = :clientId)
+            AND (:userId IS NULL OR r.user.id = :userId)
+            AND (:fromDate IS NULL OR r.endDate >= :fromDate)
+            AND (:toDate IS NULL OR r.startDate <= :toDate)
+            AND (:afterStartDate IS NULL
+                 OR r.startDate > :afterStartDate
+                 OR (r.startDate = :afterStartDate AND r.id > :afterId))
+            ORDER BY r.startDate, r.id
+            """)
+    List<Long> findPageIds(
+            @Param("status") RentalStatus status,
+            @Param("clientId") Long clientId,
+            @Param("userId") Long userId,
+            @Param("fromDate") LocalDateTime from,
+            @Param("toDate") LocalDateTime to,
+            @Param("afterStartDate") LocalDateTime afterStartDate,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+
+    // Rentas con cliente, usuario, items y productos para los ids de una página
+    @EntityGraph(attributePaths = {"client", "user", "items", "items.product"})
+    @Query("SELECT r FROM Rental r WHERE r.id IN :ids ORDER BY r.startDate, r.id")
+    List<Rental> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
     // Rentas que se cruzan con un rango de fechas y están activas
     @Query("""
                 SELECT r FROM Rental r
@@ -24,6 +72,113 @@ public interface RentalRepository extends CrudRepository<Rental, Long> {
     // Contar rentas por status
     Long countByStatus(RentalStatus status);
 
+    /* Todas las estadísticas del dashboard en una sola consulta (agregación condicional)
+    * Una fila: [porEntregar, porRecoger, ingresosDelMes, pagosDelMes, saldoPendiente]
+    * - ingresos: totales de rentas activas que inician en [startDate, endDate)
+    * - pagos: pagos con fecha en [startDate, endDate)
+    * - saldo: totales de rentas activas menos los pagos de esas rentas */
+    @Query(value = """
+            SELECT
+                COALESCE(SUM(CASE WHEN r.status = 'CREATED' THEN 1 ELSE 0 END), 0),
+                COALESCE(SUM(CASE WHEN r.status = 'DELIVERED' THEN 1 ELSE 0 END), 0),
+                COALESCE(SUM(CASE WHEN r.status IN (:activeStatuses)
+                                  AND r.start_date >= :startDate AND r.start_date < :endDate
+                             THEN r.total ELSE 0 END), 0),
+                (SELECT COALESCE(SUM(p.amount), 0) FROM payments p
+                 WHERE p.payment_date >= :startDate AND p.payment_date < :endDate),
+                COALESCE(SUM(CASE WHEN r.status IN (:activeStatuses)
+                             THEN r.total - r.amount_paid ELSE 0 END), 0)
+            FROM rentals r
+            """, nativeQuery = true)
+    List<Object[]> getDashboardStats(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("activeStatuses") List<String> activeStatuses
+    );
+
+    // Suma de totales por día de inicio, cada fila es [fecha, total]
+    // from y to son opcionales (null = sin límite); to es exclusivo
+    @Query("""
+            SELECT CAST(r.startDate AS LocalDate), SUM(r.total)
+            FROM Rental r
+            WHERE r.status IN :statuses
+            AND (:fromDate IS NULL OR r.startDate >= :fromDate)
+            AND (:toDate IS NULL OR r.startDate < :toDate)
+            GROUP BY CAST(r.startDate AS LocalDate)
+            """)
+    List<Object[]> sumTotalGroupByStartDay(
+            @Param("fromDate") LocalDateTime from,
+            @Param("toDate") LocalDateTime to,
+            @Param("statuses") List<RentalStatus> statuses
+    );
+
+    /* Rentas que aún deben dinero, de la que más debe a la que menos
+    * El saldo es la columna generada rentals.balance (total - amount_paid), sin sumar pagos
+    * Paginación por llave (balance, id), ambos descendentes para recorrer el índice
+    * idx_rentals_balance_id al revés: siguiente página con afterOwed y afterId de la última fila
+    * Cada fila es [id, clientId, clientName, status, endDate, total, amountPaid] */
+    @Query("""
+            SELECT r.id, c.id, c.nombre, r.status, r.endDate, r.total, r.amountPaid
+            FROM Rental r
+            JOIN r.client c
+            WHERE r.balance > 0
+            AND r.status IN :statuses
+            AND r.endDate < :endedBefore
+            AND (:afterOwed IS NULL
+                 OR r.balance < :afterOwed
+                 OR (r.balance = :afterOwed AND r.id < :afterId))
+            ORDER BY r.balance DESC, r.id DESC
+            """)
+    List<Object[]> findUnpaidPage(
+            @Param("statuses") Collection<RentalStatus> statuses,
+            @Param("endedBefore") LocalDateTime endedBefore,
+            @Param("afterOwed") Long afterOwed,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+
+    // Id y status de las rentas indicadas que existen (para validar pagos en lote)
+    // Cada fila es [id, status]
+    @Query("SELECT r.id, r.status FROM Rental r WHERE r.id IN :ids")
+    List<Object[]> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Suma delta al total pagado de la renta con un UPDATE atómico (sin leerlo antes)
+    @Modifying
+    @Query(value = "UPDATE rentals SET amount_paid = amount_paid + :delta WHERE id = :rentalId", nativeQuery = true)
+    int addAmountPaid(@Param("rentalId") Long rentalId, @Param("delta") long delta);
+
+    // Rentas cuyo amount_paid no coincide con la suma de sus pagos
+    @Query(value = """
+            SELECT r.id
+            FROM rentals r
+            LEFT JOIN payments p ON p.rental_id = r.id
+            GROUP BY r.id, r.amount_paid
+            HAVING r.amount_paid <> COALESCE(SUM(p.amount), 0)
+            """, nativeQuery = true)
+    List<Long> findIdsWithAmountPaidMismatch();
+
+    // Recalcula amount_paid de una renta desde sus pagos
+    @Modifying
+    @Query(value = """
+            UPDATE rentals
+            SET amount_paid = (SELECT COALESCE(SUM(p.amount), 0) FROM payments p WHERE p.rental_id = :rentalId)
+            WHERE id = :rentalId
+            """, nativeQuery = true)
+    int recalculateAmountPaid(@Param("rentalId") Long rentalId);
+
+    // Número de rentas de cada status, cada fila es [status, cantidad]
+    @Query("SELECT r.status, COUNT(r) FROM Rental r GROUP BY r.status")
+    List<Object[]> countGroupByStatus();
+
+    // Suma de totales por mes de inicio, cada fila es [año, mes, total]
+    @Query("""
+            SELECT YEAR(r.startDate), MONTH(r.startDate), SUM(r.total)
+            FROM Rental r
+            WHERE r.status IN :statuses
+            GROUP BY YEAR(r.startDate), MONTH(r.startDate)
+            """)
+    List<Object[]> sumTotalGroupByStartMonth(@Param("statuses") List<RentalStatus> statuses);
+
     // Sumar totales de rentas en un rango de fechas (para ingresos del mes)
     @Query("""
             SELECT COALESCE(SUM(r.total), 0) FROM Rental r
@@ -0,0 +1,22 @@
+package com.enrique.springboot.backend.repositories;
+
+import com.enrique.springboot.backend.entities.RevokedToken;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RevokedTokenRepository extends CrudRepository<RevokedToken, Long> {
+
+    // Revocaciones que aún afectan a algún token
+    @Query("SELECT t FROM RevokedToken t WHERE t.expiresAt > :now")
+    List<RevokedToken> findActive(@Param("now") LocalDateTime now);
+
+    // Limpieza: revocaciones de tokens que ya vencieron
+    @Modifying
+    @Query("DELETE FROM RevokedToken t WHERE t.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -6,6 +6,10 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+// Logs
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 // Spring Security
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -14,7 +18,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 // Nuestro servicio JWT
+import com.enrique.springboot.backend.security.VerifiedTokenCache.VerifiedToken;
 import com.enrique.springboot.backend.services.JwtService;
+import com.enrique.springboot.backend.services.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 
 // Java
 import java.io.IOException;
@@ -25,19 +33,31 @@ import java.util.List;
 * Este filtro se ejecuta en CADA petición HTTP antes de llegar al controller
 * Su trabajo es:
 * 1.- Extraer el token del header "Authorization"
-* 2.- Validar el token
+* 2.- Validar el token (una sola verificación; las siguientes peticiones con el
+*     mismo token lo toman de VerifiedTokenCache) y que no esté revocado
 * 3.- Si es válido, autenticar al usuario en el contexto de Spring Security
 */
 
 @Component // Lo registra como bean de Spring
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
     // Servicio para validar tokens
     private final JwtService jwtService;
 
+    // Tokens ya verificados (evita repetir la verificación en cada petición)
+    private final VerifiedTokenCache tokenCache;
+
+    // Tokens revocados antes de vencer
+    private final TokenRevocationService revocationService;
+
     // Constructor - Inyección de dependencias
-    public JwtAuthenticationFilter(JwtService jwtService) {
+    public JwtAuthenticationFilter(JwtService jwtService, VerifiedTokenCache tokenCache,
+                                   TokenRevocationService revocationService) {
         this.jwtService = jwtService;
+        this.tokenCache = tokenCache;
+        this.revocationService = revocationService;
     }
 
     /* Método principal del filtro - se ejecuta en cada petición */
@@ -63,30 +83,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String token = authHeader.substring(7);
 
         try {
-           // 4.- Extraer el username del toke
-            final String username = jwtService.extractUsername(token);
-
-            // 5.- Si hay username y no hay autenticación previa en el contexto
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-                // 6.- Validar que el token sea válido para este usuario
-                if (jwtService.isTokenValid(token, username)) {
+            // 4.- Solo si no hay autenticación previa en el contexto
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+
+                // 5.- Token ya verificado en otra petición: sin volver a calcular la firma
+                VerifiedToken verified = tokenCache.get(token);
+                if (verified == null) {
+                    // 6.- Verificar el token UNA sola vez (firma y expiración) y leer sus datos
+                    // Si es inválido o expiró lanza excepción
+                    Claims claims = jwtService.parseClaims(token);
+                    // Un token sin "exp" no vence nunca: se rechaza aunque la firma sea válida
+                    if (claims.getExpiration() == null) {
+                        throw new JwtException("Token sin fecha de expiración");
+                    }
+                    verified = new VerifiedToken(
+                            claims.getSubject(),
+                            claims.get("role", String.class),
+                            claims.getId(),
+                            claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L,
+                            claims.getExpiration().getTime()
+                    );
+                    tokenCache.put(token, verified);
+                }
 
-                    // 7.- Extraer el rol del token
-                    String role =  (String) jwtService.extractClaim(token, "role");
+                // 7.- Token revocado (logout, usuario eliminado): solo se revisa memoria, sin ir a la base de datos
+                boolean revoked = revocationService.isRevoked(
+                        verified.jti(), verified.username(), verified.issuedAtMillis());
 
+                if (verified.username() != null && !revoked) {
                     // 8.- Crear lista de autoridades (roles) para Spring Security
                     // El prefijo "ROLE_" es requerido por Spring Security
                     List<SimpleGrantedAuthority> authorities = List.of(
-                            new SimpleGrantedAuthority("ROLE_" + role)
+                            new SimpleGrantedAuthority("ROLE_" + verified.role())
                     );
 
                     // 9.- Crear el objeto de autenticación
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(
-                                    username,   // Principal (quién es)
-                                    null,       // Credentials (no necesitamos password aquí)
-                                    authorities // Roles/permisos
+                                    verified.username(),    // Principal (quién es)
+                                    null,                   // Credentials (no necesitamos password aquí)
+                                    authorities             // Roles/permisos
                             );
                     // 10.- Guardar la autenticación en el contexto de Spirng Security
                     // Esto marca al usuario como "autenticado" para esta petición
@@ -96,7 +132,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         } catch (Exception e) {
             // Si hay cualquier error al validar el token, simplemente no autenticamos
             // La petición continuará y será rechazada si la ruta requiere auth
-            System.out.println("Error validando el token: " + e.getMessage());
+            // En debug: los tokens vencidos o mal formados son normales y no deben llenar el log
+            log.debug("Error validando el token: {}", e.getMessage());
         }
 
         // 11.- Continuar con la cadena de filtros
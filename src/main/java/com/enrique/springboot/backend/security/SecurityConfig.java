@@ -1,6 +1,9 @@
 package com.enrique.springboot.backend.security;
 
+import jakarta.servlet.DispatcherType;
+
 // Configuracion de Spring
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -12,8 +15,11 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 // Para el cifrado de constraseñas
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.ClassUtils;
 
 // Para configurar CORS
 import org.springframework.web.cors.CorsConfiguration;
@@ -21,6 +27,8 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /* Configuración de Seguridad de la Aplicación
 *
@@ -64,10 +72,20 @@ public class SecurityConfig {
 
                 // 4.- Configurar autorización de rutas
                 .authorizeHttpRequests(auth -> auth
+                        // Respuestas que se siguen escribiendo después de la petición (SSE de
+                        // /api/dashboard/stream, /api/rentals/export): la petición original ya se
+                        // autorizó y en el despacho ASYNC el filtro JWT no vuelve a correr
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Rutas públicas (no requieren token)
                         .requestMatchers("/api/auth/login").permitAll()
+                        // Renovar y cerrar sesión se autorizan con el refresh token (el access token pudo haber vencido)
+                        .requestMatchers("/api/auth/refresh", "/api/auth/logout").permitAll()
                         .requestMatchers("/api/files/**").permitAll() // Permite que las imagenes puedan ser accesibles y por lo tanto que sean visibles
 
+                        // Mantenimiento (reconstruir libro de reservas, etc.) solo para administradores
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
+
                         // Todas las demas rutas requieren autenticación
                         .anyRequest().authenticated()
                 )
@@ -91,8 +109,8 @@ public class SecurityConfig {
         // Métodos HTTP permitidos
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
 
-        // Headers permitidos (incluye Authorization para el token)
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        // Headers permitidos (incluye Authorization para el token e Idempotency-Key para reintentar pagos)
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Idempotency-Key"));
 
         // Permite enviar cookies/credenciales
         configuration.setAllowCredentials(true);
@@ -105,9 +123,30 @@ public class SecurityConfig {
     }
 
     /* Bean para encriptar contraseñas
-    * BCrypt es un algoritmo seguro que incluye salt automático */
+    * BCrypt es un algoritmo seguro que incluye salt automático
+    *
+    * DelegatingPasswordEncoder guarda el algoritmo al inicio del hash ("{bcrypt}$2a$12$...")
+    * - Los hashes nuevos usan security.password.encoder (bcrypt, o argon2 si está BouncyCastle)
+    * - Los hashes viejos sin prefijo se comparan como BCrypt
+    * - Si cambia el algoritmo o bcrypt-strength, upgradeEncoding() lo detecta y el
+    *   login vuelve a calcular el hash (UserServiceImpl) */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.password.encoder:bcrypt}") String encodingId,
+                                           @Value("${security.password.bcrypt-strength:10}") int bcryptStrength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        // Argon2 necesita BouncyCastle (org.bouncycastle:bcprov-jdk18on) en el classpath
+        if (ClassUtils.isPresent("org.bouncycastle.crypto.generators.Argon2BytesGenerator", null)) {
+            encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        }
+        if (!encoders.containsKey(encodingId)) {
+            throw new IllegalStateException("Algoritmo de contraseñas no disponible: " + encodingId);
+        }
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(encodingId, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.enrique.springboot.backend.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Caché de tokens JWT ya verificados
+*
+* Verificar un token (HMAC + leer el JSON) en cada petición es lo más caro del
+* filtro, y el mismo token llega una y otra vez mientras no vence. Aquí se guarda
+* lo que el filtro necesita de cada token ya verificado:
+* - La llave es el SHA-256 del token, así no se guardan tokens en memoria
+* - Cada entrada vence cuando vence su token (después se vuelve a verificar y se rechaza)
+* - Máximo jwt.cache.max-entries entradas; al llenarse se quitan las vencidas
+*   y si no alcanza se vacía completo */
+@Component
+public class VerifiedTokenCache {
+
+    // Datos de un token verificado (jti e issuedAtMillis para revisar si fue revocado)
+    public record VerifiedToken(String username, String role, String jti, long issuedAtMillis,
+                                long expiresAtMillis) {
+    }
+
+    private final Map<String, VerifiedToken> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    // Token verificado y aún vigente, o null si hay que verificarlo
+    public VerifiedToken get(String token) {
+        String key = hash(token);
+        VerifiedToken verified = entries.get(key);
+        if (verified == null) {
+            return null;
+        }
+        if (verified.expiresAtMillis() <= System.currentTimeMillis()) {
+            entries.remove(key, verified);
+            return null;
+        }
+        return verified;
+    }
+
+    // Guarda un token que ya pasó la verificación
+    public void put(String token, VerifiedToken verified) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(hash(token), verified);
+    }
+
+    // Olvida un token (la siguiente petición con él se vuelve a verificar)
+    public void evict(String token) {
+        entries.remove(hash(token));
+    }
+
+    // SHA-256 del token en Base64
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las JVM incluyen SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
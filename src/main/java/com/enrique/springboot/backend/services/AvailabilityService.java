@@ -0,0 +1,31 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.AvailabilityCalendarResponse;
+import com.enrique.springboot.backend.dto.ProductAvailabilityResponse;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/* Interface del servicio de disponibilidad
+* Calcula cuántas unidades de cada producto están libres en un rango de fechas */
+public interface AvailabilityService {
+
+    // Disponibilidad de todo el catálogo en un rango de fechas y horas
+    // Usa un número constante de consultas sin importar cuántos productos haya
+    List<ProductAvailabilityResponse> getAvailability(LocalDateTime startDate, LocalDateTime endDate);
+
+    // Unidades ocupadas de varios productos en un rango de fechas (productId -> unidades)
+    // Como máximo una consulta sin importar cuántos productos sean
+    // excludeRentalId (opcional) ignora una renta, útil al editarla
+    // Siempre lee de la base de datos (nunca del índice en memoria): se usa al guardar
+    // rentas, dentro de la transacción que tiene bloqueados los productos
+    Map<Long, Long> getCommittedQuantities(Collection<Long> productIds, LocalDateTime startDate,
+                                           LocalDateTime endDate, Long excludeRentalId);
+
+    // Unidades libres de cada producto, día por día, en un mes
+    // El resultado se guarda en caché hasta que cambie una renta o un producto
+    AvailabilityCalendarResponse getCalendar(YearMonth month);
+}
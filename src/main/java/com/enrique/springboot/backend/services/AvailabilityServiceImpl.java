@@ -0,0 +1,223 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.AvailabilityCalendarResponse;
+import com.enrique.springboot.backend.dto.ProductAvailabilityResponse;
+import com.enrique.springboot.backend.entities.Product;
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.events.ProductChangedEvent;
+import com.enrique.springboot.backend.events.RentalChangedEvent;
+import com.enrique.springboot.backend.repositories.RentalItemRepository;
+import com.enrique.springboot.backend.services.UsageProfile.Booking;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Implementación del servicio de disponibilidad
+*
+* Las unidades ocupadas de un producto son el MÁXIMO de unidades usadas al mismo
+* tiempo dentro del rango, no la suma de todas las rentas que se cruzan con él.
+* Ejemplo: 10 sillas el viernes y otras 10 el domingo ocupan 10 (no 20) de viernes a domingo.
+*
+* - Si el índice en memoria (RentalUsageIndex) está listo, se responde sin ir a la base de datos
+* - Si no, se cargan en una sola consulta las reservas que se cruzan con el rango
+*   y se calcula el máximo con un barrido (UsageProfile)
+* - Para validar rentas nuevas, con inventory.ledger.reads-enabled=true se usa el
+*   libro de reservas (MAX sobre unas cuantas filas por hora). Al editar se sigue
+*   usando el barrido porque el libro no sabe excluir la renta que se edita */
+@Service
+public class AvailabilityServiceImpl implements AvailabilityService {
+
+    // Solo las rentas activas ocupan inventario
+    private static final List<RentalStatus> ACTIVE_STATUSES = List.of(RentalStatus.CREATED, RentalStatus.DELIVERED);
+
+    // Máximo de meses que se guardan en el caché del calendario
+    private static final int MAX_CACHED_MONTHS = 24;
+
+    private final ProductService productService;
+    private final RentalItemRepository rentalItemRepository;
+    private final RentalUsageIndex usageIndex;
+    private final InventoryLedgerService inventoryLedgerService;
+
+    // Caché del calendario por mes; se vacía cuando cambia una renta o un producto
+    private final Map<YearMonth, AvailabilityCalendarResponse> calendarCache = new ConcurrentHashMap<>();
+
+    // Se incrementa en cada invalidación para no guardar un calendario calculado con datos viejos
+    private final AtomicLong calendarGeneration = new AtomicLong();
+
+    public AvailabilityServiceImpl(ProductService productService,
+                                   RentalItemRepository rentalItemRepository,
+                                   RentalUsageIndex usageIndex,
+                                   InventoryLedgerService inventoryLedgerService) {
+        this.productService = productService;
+        this.rentalItemRepository = rentalItemRepository;
+        this.usageIndex = usageIndex;
+        this.inventoryLedgerService = inventoryLedgerService;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductAvailabilityResponse> getAvailability(LocalDateTime startDate, LocalDateTime endDate) {
+        List<Product> products = productService.findAll();
+
+        // 1.- Unidades ocupadas por producto
+        Map<Long, Long> rentedByProduct = new HashMap<>();
+        if (usageIndex.isReady()) {
+            for (Product product : products) {
+                rentedByProduct.put(product.getId(), usageIndex.maxBooked(product.getId(), startDate, endDate, null));
+            }
+        } else {
+            // Una sola consulta; los productos sin rentas en el rango no aparecen (cuentan como 0)
+            List<Object[]> rows = rentalItemRepository.findBookingsBetweenDates(startDate, endDate, ACTIVE_STATUSES);
+            rentedByProduct = peakByProduct(rows, startDate, endDate, null);
+        }
+
+        // 2.- Unir con el catálogo en memoria
+        Map<Long, Long> rented = rentedByProduct;
+        return products.stream()
+                .map(product -> new ProductAvailabilityResponse(
+                        product.getId(),
+                        product.getName(),
+                        product.getDescription(),
+                        product.getPrice(),
+                        product.getColor(),
+                        product.getStock(),
+                        rented.getOrDefault(product.getId(), 0L),
+                        product.getImageUrl()
+                ))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Long> getCommittedQuantities(Collection<Long> productIds, LocalDateTime startDate,
+                                                  LocalDateTime endDate, Long excludeRentalId) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+
+        if (excludeRentalId == null && inventoryLedgerService.isReadEnabled()) {
+            return inventoryLedgerService.getMaxReserved(productIds, startDate, endDate);
+        }
+
+        // Una sola consulta para todos los productos
+        List<Object[]> rows = rentalItemRepository.findBookingsByProductsBetweenDates(
+                productIds, startDate, endDate, ACTIVE_STATUSES);
+        return peakByProduct(rows, startDate, endDate, excludeRentalId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AvailabilityCalendarResponse getCalendar(YearMonth month) {
+        AvailabilityCalendarResponse cached = calendarCache.get(month);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = calendarGeneration.get();
+        AvailabilityCalendarResponse calendar = buildCalendar(month);
+
+        if (calendarCache.size() >= MAX_CACHED_MONTHS) {
+            calendarCache.clear();
+        }
+        calendarCache.put(month, calendar);
+        // Si hubo cambios mientras se calculaba, no lo dejamos en caché
+        if (calendarGeneration.get() != generation) {
+            calendarCache.remove(month, calendar);
+        }
+        return calendar;
+    }
+
+    // Se ejecuta después de que el índice se actualizó con la misma renta
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRentalChanged(RentalChangedEvent event) {
+        invalidateCalendar();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidateCalendar();
+    }
+
+    private void invalidateCalendar() {
+        calendarGeneration.incrementAndGet();
+        calendarCache.clear();
+    }
+
+    /* Calcula el calendario de un mes en una sola pasada:
+    * un perfil de ocupación por producto y una consulta O(log n) por día */
+    private AvailabilityCalendarResponse buildCalendar(YearMonth month) {
+        int days = month.lengthOfMonth();
+        LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+        LocalDateTime monthEnd = month.atEndOfMonth().atTime(LocalTime.MAX);
+
+        boolean useIndex = usageIndex.isReady();
+        Map<Long, UsageProfile> profiles = Map.of();
+        if (!useIndex) {
+            // Una sola consulta con las reservas que se cruzan con el mes
+            List<Object[]> rows = rentalItemRepository.findBookingsBetweenDates(monthStart, monthEnd, ACTIVE_STATUSES);
+            profiles = profilesByProduct(rows, null);
+        }
+
+        List<AvailabilityCalendarResponse.ProductDays> result = new ArrayList<>();
+        for (Product product : productService.findAll()) {
+            UsageProfile profile = profiles.getOrDefault(product.getId(), UsageProfile.EMPTY);
+            long[] available = new long[days];
+            for (int day = 0; day < days; day++) {
+                LocalDate date = month.atDay(day + 1);
+                LocalDateTime dayStart = date.atStartOfDay();
+                LocalDateTime dayEnd = date.atTime(LocalTime.MAX);
+                long rented = useIndex
+                        ? usageIndex.maxBooked(product.getId(), dayStart, dayEnd, null)
+                        : profile.maxUsage(dayStart, dayEnd);
+                available[day] = product.getStock() - rented;
+            }
+            result.add(new AvailabilityCalendarResponse.ProductDays(
+                    product.getId(), product.getName(), product.getStock(), available));
+        }
+
+        return new AvailabilityCalendarResponse(month.toString(), days, result);
+    }
+
+    /* Calcula el máximo simultáneo de cada producto en [start, end]
+    * Filas: [rentalId, productId, startDate, endDate, quantity] */
+    private Map<Long, Long> peakByProduct(List<Object[]> rows, LocalDateTime startDate, LocalDateTime endDate,
+                                          Long excludeRentalId) {
+        Map<Long, Long> peak = new HashMap<>();
+        profilesByProduct(rows, excludeRentalId).forEach((productId, profile) ->
+                peak.put(productId, profile.maxUsage(startDate, endDate)));
+        return peak;
+    }
+
+    /* Agrupa las reservas por producto y construye el perfil de ocupación de cada uno
+    * Filas: [rentalId, productId, startDate, endDate, quantity] */
+    private Map<Long, UsageProfile> profilesByProduct(List<Object[]> rows, Long excludeRentalId) {
+        Map<Long, List<Booking>> bookingsByProduct = new HashMap<>();
+        for (Object[] row : rows) {
+            if (excludeRentalId != null && excludeRentalId.equals(row[0])) {
+                continue;
+            }
+            bookingsByProduct.computeIfAbsent((Long) row[1], id -> new ArrayList<>())
+                    .add(new Booking((LocalDateTime) row[2], (LocalDateTime) row[3], ((Number) row[4]).longValue()));
+        }
+
+        Map<Long, UsageProfile> profiles = new HashMap<>();
+        bookingsByProduct.forEach((productId, bookings) -> profiles.put(productId, UsageProfile.of(bookings)));
+        return profiles;
+    }
+}
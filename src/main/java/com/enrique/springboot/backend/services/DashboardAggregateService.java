@@ -0,0 +1,42 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.AggregateReconcileResponse;
+
+import com.enrique.springboot.backend.enums.RentalStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+/* Interface de los contadores precalculados del dashboard (tabla dashboard_aggregates) */
+public interface DashboardAggregateService {
+
+    // true si los contadores se mantienen y se usan (propiedad dashboard.aggregates.enabled)
+    boolean isEnabled();
+
+    // Aplica la diferencia entre dos fotos de una renta (status y ingresos del mes)
+    // before = null para rentas nuevas, after = null para rentas eliminadas
+    // Debe llamarse dentro de la transacción que guarda la renta: las diferencias de
+    // applyRental/applyPayment/applyPayments se juntan y se aplican justo antes del commit
+    void applyRental(RentalSnapshot before, RentalSnapshot after);
+
+    // Suma (o resta, con amountDelta negativo) un pago a los pagos del mes de paymentDate
+    // y lo descuenta del saldo pendiente si la renta no está cancelada
+    // rentalStatus = null cuando el pago se elimina junto con su renta (el saldo ya se ajustó con la renta)
+    void applyPayment(LocalDateTime paymentDate, RentalStatus rentalStatus, long amountDelta);
+
+    // Igual que applyPayment para un lote de pagos nuevos, ya sumados:
+    // amountByDay = total por día de pago, amountByStatus = total por status de su renta
+    // Cada llave se actualiza una sola vez aunque el lote tenga miles de pagos
+    void applyPayments(Map<LocalDate, Long> amountByDay, Map<RentalStatus, Long> amountByStatus);
+
+    // Valores de las llaves indicadas; las que no existen valen 0
+    Map<String, Long> getValues(Collection<String> keys);
+
+    // Contadores con llave entre fromKey y toKey (incluidas); solo las que existen
+    Map<String, Long> getRange(String fromKey, String toKey);
+
+    // Recalcula todo desde rentals y payments, corrige la tabla y reporta las diferencias
+    AggregateReconcileResponse reconcile();
+}
@@ -0,0 +1,263 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.AggregateReconcileResponse;
+import com.enrique.springboot.backend.entities.DashboardAggregate;
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.repositories.DashboardAggregateRepository;
+import com.enrique.springboot.backend.repositories.PaymentRepository;
+import com.enrique.springboot.backend.repositories.RentalRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/* Implementación de los contadores del dashboard
+*
+* Cada escritura suma o resta solo su diferencia con un UPDATE atómico, así
+* /api/dashboard/stats lee tres filas en lugar de contar y sumar rentas.
+*
+* Las filas OUTSTANDING y STATUS:* las tocan todas las reservas y pagos. Para no
+* tenerlas bloqueadas durante toda la transacción, las diferencias se acumulan
+* en un solo mapa por transacción y se aplican justo antes del commit, todas
+* juntas y en orden alfabético (así dos transacciones no se bloquean entre sí
+* aunque una aplique una renta y varios pagos).
+*
+* reconcile() recalcula todo desde cero (al arrancar y cada noche con MaintenanceJobs,
+* y con POST /api/admin/dashboard/reconcile) y reporta las llaves que no coincidían. */
+@Service
+public class DashboardAggregateServiceImpl implements DashboardAggregateService {
+
+    // Status que cuentan como ingreso (excluye CANCELLED), igual que el cálculo original
+    private static final List<RentalStatus> REVENUE_STATUSES = List.of(
+            RentalStatus.CREATED,
+            RentalStatus.DELIVERED,
+            RentalStatus.PICKED_UP
+    );
+
+    private final DashboardAggregateRepository aggregateRepository;
+    private final RentalRepository rentalRepository;
+    private final PaymentRepository paymentRepository;
+    private final boolean enabled;
+
+    public DashboardAggregateServiceImpl(DashboardAggregateRepository aggregateRepository,
+                                         RentalRepository rentalRepository,
+                                         PaymentRepository paymentRepository,
+                                         @Value("${dashboard.aggregates.enabled:true}") boolean enabled) {
+        this.aggregateRepository = aggregateRepository;
+        this.rentalRepository = rentalRepository;
+        this.paymentRepository = paymentRepository;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    @Transactional
+    public void applyRental(RentalSnapshot before, RentalSnapshot after) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Long> deltas = pendingDeltas();
+        if (before != null) {
+            addRental(deltas, before, -1);
+        }
+        if (after != null) {
+            addRental(deltas, after, 1);
+        }
+        flushIfNoTransaction(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void applyPayment(LocalDateTime paymentDate, RentalStatus rentalStatus, long amountDelta) {
+        if (!enabled || amountDelta == 0) {
+            return;
+        }
+        Map<String, Long> deltas = pendingDeltas();
+        if (rentalStatus != null && REVENUE_STATUSES.contains(rentalStatus)) {
+            deltas.merge(DashboardAggregate.OUTSTANDING_KEY, -amountDelta, Long::sum);
+        }
+        deltas.merge(DashboardAggregate.paymentsKey(YearMonth.from(paymentDate)), amountDelta, Long::sum);
+        deltas.merge(DashboardAggregate.paymentsDayKey(paymentDate.toLocalDate()), amountDelta, Long::sum);
+        flushIfNoTransaction(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void applyPayments(Map<LocalDate, Long> amountByDay, Map<RentalStatus, Long> amountByStatus) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Long> deltas = pendingDeltas();
+        amountByStatus.forEach((status, amount) -> {
+            if (REVENUE_STATUSES.contains(status)) {
+                deltas.merge(DashboardAggregate.OUTSTANDING_KEY, -amount, Long::sum);
+            }
+        });
+        amountByDay.forEach((day, amount) -> {
+            deltas.merge(DashboardAggregate.paymentsKey(YearMonth.from(day)), amount, Long::sum);
+            deltas.merge(DashboardAggregate.paymentsDayKey(day), amount, Long::sum);
+        });
+        flushIfNoTransaction(deltas);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Long> getRange(String fromKey, String toKey) {
+        Map<String, Long> values = new HashMap<>();
+        aggregateRepository.findByKeyBetween(fromKey, toKey)
+                .forEach(aggregate -> values.put(aggregate.getKey(), aggregate.getValue()));
+        return values;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Long> getValues(Collection<String> keys) {
+        Map<String, Long> values = new HashMap<>();
+        keys.forEach(key -> values.put(key, 0L));
+        aggregateRepository.findAllById(keys).forEach(aggregate -> values.put(aggregate.getKey(), aggregate.getValue()));
+        return values;
+    }
+
+    /* Bloquea los contadores existentes (espera a las escrituras en curso y detiene
+    * las nuevas), recalcula con READ_COMMITTED para ver lo último confirmado y
+    * corrige las llaves que no coinciden */
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public AggregateReconcileResponse reconcile() {
+        Map<String, Long> stored = new HashMap<>();
+        for (DashboardAggregate aggregate : aggregateRepository.findAllForUpdate()) {
+            stored.put(aggregate.getKey(), aggregate.getValue());
+        }
+
+        Map<String, Long> actual = new HashMap<>();
+        for (Object[] row : rentalRepository.countGroupByStatus()) {
+            // Fila: [status, cantidad]
+            actual.put(DashboardAggregate.statusKey((RentalStatus) row[0]), ((Number) row[1]).longValue());
+        }
+        long billed = 0;
+        for (Object[] row : rentalRepository.sumTotalGroupByStartMonth(REVENUE_STATUSES)) {
+            // Fila: [año, mes, total]
+            YearMonth month = YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+            long total = ((Number) row[2]).longValue();
+            actual.put(DashboardAggregate.revenueKey(month), total);
+            billed += total;
+        }
+        actual.put(DashboardAggregate.OUTSTANDING_KEY,
+                billed - paymentRepository.sumAmountByRentalStatuses(REVENUE_STATUSES));
+        for (Object[] row : rentalRepository.sumTotalGroupByStartDay(null, null, REVENUE_STATUSES)) {
+            // Fila: [fecha, total]
+            actual.put(DashboardAggregate.revenueDayKey(toLocalDate(row[0])), ((Number) row[1]).longValue());
+        }
+        for (Object[] row : paymentRepository.sumAmountGroupByDay(null, null)) {
+            // Fila: [fecha, monto]
+            actual.put(DashboardAggregate.paymentsDayKey(toLocalDate(row[0])), ((Number) row[1]).longValue());
+        }
+        for (Object[] row : paymentRepository.sumAmountGroupByMonth()) {
+            // Fila: [año, mes, monto]
+            YearMonth month = YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+            actual.put(DashboardAggregate.paymentsKey(month), ((Number) row[2]).longValue());
+        }
+
+        TreeSet<String> keys = new TreeSet<>(stored.keySet());
+        keys.addAll(actual.keySet());
+        List<AggregateReconcileResponse.Drift> drifts = new ArrayList<>();
+        for (String key : keys) {
+            long expected = actual.getOrDefault(key, 0L);
+            Long current = stored.get(key);
+            if (!Objects.equals(current, expected)) {
+                drifts.add(new AggregateReconcileResponse.Drift(key, current, expected));
+                aggregateRepository.setValue(key, expected);
+            }
+        }
+        return new AggregateReconcileResponse(keys.size(), drifts);
+    }
+
+    // El driver puede regresar la fecha como LocalDate o como java.sql.Date
+    static LocalDate toLocalDate(Object value) {
+        return value instanceof Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    /* Mapa de diferencias de la transacción actual
+    * La primera llamada registra un PendingDeltas que las aplica antes del commit;
+    * las siguientes de la misma transacción reciben el mismo mapa.
+    * Se busca entre las sincronizaciones (no como recurso) para que una transacción
+    * REQUIRES_NEW tenga su propio mapa y no aplique las de la transacción externa */
+    private Map<String, Long> pendingDeltas() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new TreeMap<>();
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingDeltas pending && pending.owner == this) {
+                return pending.deltas;
+            }
+        }
+        PendingDeltas pending = new PendingDeltas(this);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending.deltas;
+    }
+
+    // Sin transacción (no debería pasar, los métodos son @Transactional) se aplican de inmediato
+    private void flushIfNoTransaction(Map<String, Long> deltas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            flush(deltas);
+        }
+    }
+
+    // Un UPDATE por llave, en orden alfabético (TreeMap) para evitar deadlocks
+    private void flush(Map<String, Long> deltas) {
+        deltas.forEach((key, delta) -> {
+            if (delta != 0) {
+                aggregateRepository.addToValue(key, delta);
+            }
+        });
+        deltas.clear();
+    }
+
+    // Diferencias pendientes de una transacción; se aplican en beforeCommit (todavía dentro de ella)
+    private static final class PendingDeltas implements TransactionSynchronization {
+
+        private final DashboardAggregateServiceImpl owner;
+        private final Map<String, Long> deltas = new TreeMap<>();
+
+        private PendingDeltas(DashboardAggregateServiceImpl owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            owner.flush(deltas);
+        }
+    }
+
+    // Suma (o resta, con sign = -1) el status y el ingreso de una renta
+    private void addRental(Map<String, Long> deltas, RentalSnapshot snapshot, int sign) {
+        deltas.merge(DashboardAggregate.statusKey(snapshot.status()), (long) sign, Long::sum);
+        if (REVENUE_STATUSES.contains(snapshot.status())) {
+            deltas.merge(DashboardAggregate.revenueKey(YearMonth.from(snapshot.startDate())),
+                    sign * snapshot.total(), Long::sum);
+            deltas.merge(DashboardAggregate.revenueDayKey(snapshot.startDate().toLocalDate()),
+                    sign * snapshot.total(), Long::sum);
+            deltas.merge(DashboardAggregate.OUTSTANDING_KEY,
+                    sign * (snapshot.total() - snapshot.paid()), Long::sum);
+        }
+    }
+}
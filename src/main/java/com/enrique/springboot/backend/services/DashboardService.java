@@ -1,6 +1,10 @@
 package com.enrique.springboot.backend.services;
 
 import com.enrique.springboot.backend.dto.DashboardStatsResponse;
+import com.enrique.springboot.backend.dto.TimeSeriesResponse;
+import com.enrique.springboot.backend.enums.TimeGranularity;
+
+import java.time.LocalDate;
 
 /**
  * Interface del servicio de Dashboard
@@ -13,8 +17,18 @@ public interface DashboardService {
      * - Rentas por entregar (status CREATED)
      * - Rentas por recoger (status DELIVERED)
      * - Ingresos del mes actual
+     * - Pagos recibidos en el mes actual
+     * - Saldo pendiente de rentas no canceladas
      *
      * @return DashboardStatsResponse con las métricas
      */
     DashboardStatsResponse getStats();
+
+    /**
+     * Ingresos (totales de rentas) y cobros (pagos) agrupados por día, semana o mes
+     * entre dos fechas (ambas incluidas)
+     *
+     * @return TimeSeriesResponse con arreglos del mismo tamaño, un valor por periodo
+     */
+    TimeSeriesResponse getTimeSeries(LocalDate from, LocalDate to, TimeGranularity granularity);
 }
@@ -1,42 +1,63 @@
 package com.enrique.springboot.backend.services;
 
 import com.enrique.springboot.backend.dto.DashboardStatsResponse;
+import com.enrique.springboot.backend.dto.TimeSeriesResponse;
+import com.enrique.springboot.backend.entities.DashboardAggregate;
 import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.enums.TimeGranularity;
+import com.enrique.springboot.backend.repositories.PaymentRepository;
 import com.enrique.springboot.backend.repositories.RentalRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementación del servicio de dashboard
- * Calcula las estadísticas usando el RentalRepository
+ * Lee las estadísticas de los contadores precalculados (DashboardAggregateService)
+ * Si están desactivados, las calcula usando el RentalRepository
  */
 @Service
 public class DashboardServiceImpl implements DashboardService {
 
+    // Máximo de puntos en una serie de tiempo (~27 años por día)
+    private static final int MAX_BUCKETS = 10_000;
+
     // Inyectamos el repositorio de rentas
     private final RentalRepository rentalRepository;
 
+    // Repositorio de pagos (series de tiempo sin contadores)
+    private final PaymentRepository paymentRepository;
+
+    // Contadores precalculados
+    private final DashboardAggregateService aggregateService;
+
     // Constructor con inyección de dependencias
 
-    public DashboardServiceImpl(RentalRepository rentalRepository) {
+    public DashboardServiceImpl(RentalRepository rentalRepository, PaymentRepository paymentRepository,
+                                DashboardAggregateService aggregateService) {
         this.rentalRepository = rentalRepository;
+        this.paymentRepository = paymentRepository;
+        this.aggregateService = aggregateService;
     }
 
     @Override
     @Transactional(readOnly = true)     // Solo lectura, no modifica datos
     public DashboardStatsResponse getStats() {
+        if (aggregateService.isEnabled()) {
+            return getStatsFromAggregates();
+        }
 
-        // 1.- Contar rentas por entregar (status = CREATED)
-        Long rentasPorEntregar = rentalRepository.countByStatus(RentalStatus.CREATED);
-
-        // 2.- Contar rentas por recoger (status = DELIVERED)
-        Long rentasPorRecoger = rentalRepository.countByStatus(RentalStatus.DELIVERED);
-
-        // 3.- Calcular ingresos del mes actual
+        // 1.- Rango del mes actual
         // Obtenemos el primer dia del mes actual a las 00:00:00
         YearMonth mesActual = YearMonth.now();
         LocalDateTime inicioMes = mesActual.atDay(1).atStartOfDay();
@@ -45,20 +66,113 @@ public class DashboardServiceImpl implements DashboardService {
         LocalDateTime finMes = mesActual.plusMonths(1).atDay(1).atStartOfDay();
 
         // Solo contamos rentas activas (Excluimos CANCELLED)
-        List<RentalStatus> statusActivos = List.of(
-                RentalStatus.CREATED,
-                RentalStatus.DELIVERED,
-                RentalStatus.PICKED_UP
+        List<String> statusActivos = List.of(
+                RentalStatus.CREATED.name(),
+                RentalStatus.DELIVERED.name(),
+                RentalStatus.PICKED_UP.name()
         );
 
-        Long ingresosDelMes = rentalRepository.sumTotalByDateRangeAndStatuses(
-                inicioMes,
-                finMes,
-                statusActivos
+        // 2.- Conteos, ingresos, pagos y saldo en una sola consulta (antes eran tres)
+        Object[] row = rentalRepository.getDashboardStats(inicioMes, finMes, statusActivos).get(0);
+
+        // 3.- Construir y retornar la respuesta
+        return new DashboardStatsResponse(
+                ((Number) row[0]).longValue(),  // rentasPorEntregar
+                ((Number) row[1]).longValue(),  // rentasPorRecoger
+                ((Number) row[2]).longValue(),  // ingresosDelMes
+                ((Number) row[3]).longValue(),  // pagosDelMes
+                ((Number) row[4]).longValue()   // saldoPendiente
         );
+    }
+
+    /* Series de tiempo
+    * 1.- Se obtienen los totales por día: de los contadores diarios (un rango de llaves)
+    *     o, si están desactivados, con GROUP BY por día en la base de datos
+    * 2.- Se acumulan en el periodo (día, semana o mes) al que pertenece cada día */
+    @Override
+    @Transactional(readOnly = true)
+    public TimeSeriesResponse getTimeSeries(LocalDate from, LocalDate to, TimeGranularity granularity) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser mayor a la fecha final");
+        }
+
+        // 1.- Periodos del rango (posición de cada uno en los arreglos)
+        LocalDate firstBucket = bucketStart(from, granularity);
+        List<String> buckets = new ArrayList<>();
+        Map<LocalDate, Integer> positions = new HashMap<>();
+        for (LocalDate bucket = firstBucket; !bucket.isAfter(to); bucket = nextBucket(bucket, granularity)) {
+            if (buckets.size() >= MAX_BUCKETS) {
+                throw new IllegalArgumentException("Rango demasiado grande para la granularidad " + granularity);
+            }
+            positions.put(bucket, buckets.size());
+            buckets.add(bucket.toString());
+        }
+
+        // 2.- Totales por día
+        Map<LocalDate, Long> revenueByDay = new HashMap<>();
+        Map<LocalDate, Long> collectedByDay = new HashMap<>();
+        if (aggregateService.isEnabled()) {
+            readDailyAggregates(DashboardAggregate.REVENUE_DAY_PREFIX, from, to, revenueByDay);
+            readDailyAggregates(DashboardAggregate.PAYMENTS_DAY_PREFIX, from, to, collectedByDay);
+        } else {
+            LocalDateTime start = from.atStartOfDay();
+            LocalDateTime end = to.plusDays(1).atStartOfDay();
+            List<RentalStatus> statusActivos = List.of(
+                    RentalStatus.CREATED,
+                    RentalStatus.DELIVERED,
+                    RentalStatus.PICKED_UP
+            );
+            for (Object[] row : rentalRepository.sumTotalGroupByStartDay(start, end, statusActivos)) {
+                revenueByDay.put(DashboardAggregateServiceImpl.toLocalDate(row[0]), ((Number) row[1]).longValue());
+            }
+            for (Object[] row : paymentRepository.sumAmountGroupByDay(start, end)) {
+                collectedByDay.put(DashboardAggregateServiceImpl.toLocalDate(row[0]), ((Number) row[1]).longValue());
+            }
+        }
+
+        // 3.- Acumular cada día en su periodo
+        long[] revenue = new long[buckets.size()];
+        long[] collected = new long[buckets.size()];
+        revenueByDay.forEach((day, amount) -> revenue[positions.get(bucketStart(day, granularity))] += amount);
+        collectedByDay.forEach((day, amount) -> collected[positions.get(bucketStart(day, granularity))] += amount);
+
+        return new TimeSeriesResponse(granularity.name(), buckets, revenue, collected);
+    }
+
+    // Lee los contadores diarios prefix + fecha entre from y to
+    private void readDailyAggregates(String prefix, LocalDate from, LocalDate to, Map<LocalDate, Long> byDay) {
+        aggregateService.getRange(prefix + from, prefix + to).forEach((key, value) ->
+                byDay.put(LocalDate.parse(key.substring(prefix.length())), value));
+    }
+
+    // Primer día del periodo al que pertenece una fecha
+    private static LocalDate bucketStart(LocalDate date, TimeGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDate nextBucket(LocalDate bucket, TimeGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> bucket.plus(1, ChronoUnit.DAYS);
+            case WEEK -> bucket.plus(1, ChronoUnit.WEEKS);
+            case MONTH -> bucket.plus(1, ChronoUnit.MONTHS);
+        };
+    }
+
+    // Cinco llaves por id, sin importar cuántas rentas existan
+    private DashboardStatsResponse getStatsFromAggregates() {
+        String porEntregar = DashboardAggregate.statusKey(RentalStatus.CREATED);
+        String porRecoger = DashboardAggregate.statusKey(RentalStatus.DELIVERED);
+        String ingresos = DashboardAggregate.revenueKey(YearMonth.now());
+        String pagos = DashboardAggregate.paymentsKey(YearMonth.now());
+        String saldo = DashboardAggregate.OUTSTANDING_KEY;
 
-        // 4.- Construir y retornar la respuesta
-        return new DashboardStatsResponse(rentasPorEntregar, rentasPorRecoger, ingresosDelMes);
+        Map<String, Long> values = aggregateService.getValues(List.of(porEntregar, porRecoger, ingresos, pagos, saldo));
+        return new DashboardStatsResponse(values.get(porEntregar), values.get(porRecoger), values.get(ingresos),
+                values.get(pagos), values.get(saldo));
     }
 }
 
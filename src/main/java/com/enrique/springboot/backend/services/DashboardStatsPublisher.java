@@ -0,0 +1,140 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.DashboardStatsResponse;
+import com.enrique.springboot.backend.events.PaymentChangedEvent;
+import com.enrique.springboot.backend.events.RentalChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/* Envía las estadísticas del dashboard por Server-Sent Events (GET /api/dashboard/stream)
+*
+* - Al conectarse, el cliente recibe las estadísticas actuales
+* - Cuando se confirma un cambio de renta o de pago se agenda UN envío para dentro de
+*   dashboard.stream.coalesce-ms; los cambios que lleguen mientras tanto se juntan en
+*   ese mismo envío, así una ráfaga de escrituras produce una sola consulta y un solo push
+* - Si las estadísticas no cambiaron, no se envía nada
+* - Cada dashboard.stream.heartbeat-ms se manda un comentario para mantener viva la
+*   conexión y descartar los clientes que ya se desconectaron */
+@Component
+public class DashboardStatsPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardStatsPublisher.class);
+
+    private static final String STATS_EVENT = "stats";
+
+    private final DashboardService dashboardService;
+    private final TaskScheduler taskScheduler;
+    private final long coalesceMillis;
+    private final long timeoutMillis;
+
+    // Clientes conectados
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    // true mientras hay un envío agendado
+    private final AtomicBoolean broadcastScheduled = new AtomicBoolean();
+
+    // Últimas estadísticas enviadas (para no repetir)
+    private volatile DashboardStatsResponse lastSent;
+
+    public DashboardStatsPublisher(DashboardService dashboardService,
+                                   TaskScheduler taskScheduler,
+                                   @Value("${dashboard.stream.coalesce-ms:500}") long coalesceMillis,
+                                   @Value("${dashboard.stream.timeout-ms:1800000}") long timeoutMillis) {
+        this.dashboardService = dashboardService;
+        this.taskScheduler = taskScheduler;
+        this.coalesceMillis = coalesceMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    // Registra un cliente y le manda las estadísticas actuales
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+
+        send(emitter, SseEmitter.event().name(STATS_EVENT).data(dashboardService.getStats()));
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRentalChanged(RentalChangedEvent event) {
+        scheduleBroadcast();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPaymentChanged(PaymentChangedEvent event) {
+        scheduleBroadcast();
+    }
+
+    @Scheduled(fixedRateString = "${dashboard.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, SseEmitter.event().comment("ping"));
+        }
+    }
+
+    // Solo agenda si no hay otro envío pendiente
+    private void scheduleBroadcast() {
+        if (emitters.isEmpty()) {
+            // Nadie escucha; cada cliente consulta al conectarse
+            lastSent = null;
+            return;
+        }
+        if (broadcastScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::broadcast, Instant.now().plus(Duration.ofMillis(coalesceMillis)));
+        }
+    }
+
+    private void broadcast() {
+        // Se libera antes de consultar: un cambio que llegue durante la consulta agenda otro envío
+        broadcastScheduled.set(false);
+        try {
+            DashboardStatsResponse stats = dashboardService.getStats();
+            if (sameStats(stats, lastSent)) {
+                return;
+            }
+            lastSent = stats;
+            for (SseEmitter emitter : emitters) {
+                send(emitter, SseEmitter.event().name(STATS_EVENT).data(stats));
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron enviar las estadísticas del dashboard", e);
+        }
+    }
+
+    // Si el cliente ya se desconectó, se cierra y se quita de la lista
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static boolean sameStats(DashboardStatsResponse a, DashboardStatsResponse b) {
+        return b != null
+                && Objects.equals(a.getRentasPorEntregar(), b.getRentasPorEntregar())
+                && Objects.equals(a.getRentasPorRecoger(), b.getRentasPorRecoger())
+                && Objects.equals(a.getIngresosDelMes(), b.getIngresosDelMes())
+                && Objects.equals(a.getPagosDelMes(), b.getPagosDelMes())
+                && Objects.equals(a.getSaldoPendiente(), b.getSaldoPendiente());
+    }
+}
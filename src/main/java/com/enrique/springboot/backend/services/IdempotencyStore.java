@@ -0,0 +1,101 @@
+package com.enrique.springboot.backend.services;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/* Memoria de llaves de idempotencia (header Idempotency-Key)
+*
+* La primera petición con una llave la "reclama" y guarda su resultado; las
+* repeticiones reciben el mismo resultado sin volver a ejecutar la operación.
+* - Búsqueda O(1) en memoria, sin ir a la base de datos
+* - Acotada: como máximo maxKeys llaves, se descartan las más viejas que ya terminaron
+*   (una llave en proceso nunca se descarta, o su repetición volvería a ejecutar la operación)
+* - Cada llave expira después de ttl
+* Si la operación falla, la llave se libera para que el cliente pueda reintentar. */
+public class IdempotencyStore<T> {
+
+    /* Resultado de reclamar una llave
+    * - owner = true: la llave es nueva, quien la reclamó debe ejecutar la operación
+    *   y llamar complete() o release()
+    * - owner = false: ya existía; result se completa con la respuesta original y
+    *   fingerprint es el de la petición original */
+    public record Claim<T>(boolean owner, CompletableFuture<T> result, String fingerprint) {
+    }
+
+    private record Entry<T>(CompletableFuture<T> result, String fingerprint, long createdAt) {
+    }
+
+    private final int maxKeys;
+    private final long ttlMillis;
+
+    // Orden de inserción: las primeras son las más viejas (para expirar y descartar)
+    private final LinkedHashMap<String, Entry<T>> entries;
+
+    public IdempotencyStore(int maxKeys, Duration ttl) {
+        this.maxKeys = maxKeys;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, false);
+    }
+
+    public synchronized Claim<T> claim(String key, String fingerprint) {
+        long now = System.currentTimeMillis();
+        evictExpired(now);
+
+        Entry<T> existing = entries.get(key);
+        if (existing != null) {
+            return new Claim<>(false, existing.result(), existing.fingerprint());
+        }
+        Entry<T> entry = new Entry<>(new CompletableFuture<>(), fingerprint, now);
+        entries.put(key, entry);
+        evictCompleted();
+        return new Claim<>(true, entry.result(), fingerprint);
+    }
+
+    // La operación terminó bien: las repeticiones reciben este valor
+    public void complete(String key, T value) {
+        Entry<T> entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            entry.result().complete(value);
+        }
+    }
+
+    // La operación falló: se olvida la llave y se avisa a quien esté esperando
+    public void release(String key, Throwable cause) {
+        Entry<T> entry;
+        synchronized (this) {
+            entry = entries.remove(key);
+        }
+        if (entry != null) {
+            entry.result().completeExceptionally(cause);
+        }
+    }
+
+    /* Si hay más de maxKeys llaves se descartan las más viejas que ya tienen resultado
+    * Las que siguen en proceso se saltan: si todas lo están, el mapa pasa de maxKeys
+    * mientras terminan (a lo más una por petición en curso) */
+    private void evictCompleted() {
+        Iterator<Entry<T>> iterator = entries.values().iterator();
+        while (entries.size() > maxKeys && iterator.hasNext()) {
+            if (iterator.next().result().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Las llaves vencidas siempre están al inicio (orden de inserción)
+    private void evictExpired(long now) {
+        Iterator<Entry<T>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<T> entry = iterator.next();
+            if (now - entry.createdAt() < ttlMillis) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+}
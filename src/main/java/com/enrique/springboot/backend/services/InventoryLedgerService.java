@@ -0,0 +1,25 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.LedgerRebuildResponse;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+/* Interface del libro de reservas de inventario (unidades reservadas por producto y por hora) */
+public interface InventoryLedgerService {
+
+    // true si la disponibilidad se puede leer del libro (propiedad inventory.ledger.reads-enabled)
+    boolean isReadEnabled();
+
+    // Aplica al libro la diferencia entre dos fotos de una renta
+    // before = null para rentas nuevas, after = null para rentas eliminadas
+    // Debe llamarse dentro de la transacción que guarda la renta
+    void apply(RentalSnapshot before, RentalSnapshot after);
+
+    // Máximo de unidades reservadas por producto en las horas que toca [startDate, endDate]
+    Map<Long, Long> getMaxReserved(Collection<Long> productIds, LocalDateTime startDate, LocalDateTime endDate);
+
+    // Regenera el libro desde rentals/rental_items y reporta cuántas horas no coincidían
+    LedgerRebuildResponse rebuild();
+}
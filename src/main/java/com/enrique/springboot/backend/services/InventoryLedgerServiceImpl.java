@@ -0,0 +1,183 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.LedgerRebuildResponse;
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.repositories.InventoryLedgerRepository;
+import com.enrique.springboot.backend.repositories.ProductRepository;
+import com.enrique.springboot.backend.repositories.RentalItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/* Implementación del libro de reservas de inventario
+*
+* Una renta [inicio, fin] reserva sus unidades en todas las horas que toca,
+* de la hora de inicio a la hora de fin (ambas incluidas). Al leer se toma el
+* máximo de esas horas, así que es un poco más estricto que el cálculo exacto
+* (dos rentas en la misma hora que no se cruzan cuentan juntas).
+*
+* Los cambios se escriben en lote con INSERT ... ON DUPLICATE KEY UPDATE,
+* sumando o restando solo la diferencia entre antes y después. Las horas que
+* quedan en 0 se borran enseguida para que la tabla no crezca con filas vacías. */
+@Service
+public class InventoryLedgerServiceImpl implements InventoryLedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedgerServiceImpl.class);
+
+    private static final List<RentalStatus> ACTIVE_STATUSES = List.of(RentalStatus.CREATED, RentalStatus.DELIVERED);
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO inventory_ledger (product_id, bucket_start, reserved)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE reserved = reserved + VALUES(reserved)
+            """;
+
+    // Solo borra si quedó en 0: otra renta pudo reservar la misma hora entre tanto
+    private static final String DELETE_EMPTY_SQL = """
+            DELETE FROM inventory_ledger
+            WHERE product_id = ? AND bucket_start = ? AND reserved = 0
+            """;
+
+    private final InventoryLedgerRepository ledgerRepository;
+    private final RentalItemRepository rentalItemRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Usar el libro para leer disponibilidad (si es false solo se mantiene)
+    private final boolean readEnabled;
+
+    public InventoryLedgerServiceImpl(InventoryLedgerRepository ledgerRepository,
+                                      RentalItemRepository rentalItemRepository,
+                                      ProductRepository productRepository,
+                                      JdbcTemplate jdbcTemplate,
+                                      @Value("${inventory.ledger.reads-enabled:false}") boolean readEnabled) {
+        this.ledgerRepository = ledgerRepository;
+        this.rentalItemRepository = rentalItemRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readEnabled = readEnabled;
+    }
+
+    @Override
+    public boolean isReadEnabled() {
+        return readEnabled;
+    }
+
+    @Override
+    @Transactional
+    public void apply(RentalSnapshot before, RentalSnapshot after) {
+        // (productId, hora) -> unidades a sumar (negativo = restar)
+        Map<BucketKey, Long> deltas = new HashMap<>();
+        if (before != null && before.occupiesInventory()) {
+            addBuckets(deltas, before, -1);
+        }
+        if (after != null && after.occupiesInventory()) {
+            addBuckets(deltas, after, 1);
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        // Solo las horas a las que se les restó pueden quedar en 0
+        List<Object[]> decreased = new ArrayList<>();
+        deltas.forEach((key, delta) -> {
+            batch.add(new Object[]{key.productId(), Timestamp.valueOf(key.bucket()), delta});
+            if (delta < 0) {
+                decreased.add(new Object[]{key.productId(), Timestamp.valueOf(key.bucket())});
+            }
+        });
+        jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+        if (!decreased.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_EMPTY_SQL, decreased);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Long> getMaxReserved(Collection<Long> productIds, LocalDateTime startDate, LocalDateTime endDate) {
+        Map<Long, Long> reserved = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return reserved;
+        }
+        for (Object[] row : ledgerRepository.findMaxReservedByProducts(
+                productIds, toBucket(startDate), toBucket(endDate))) {
+            reserved.put((Long) row[0], Math.max(0L, ((Number) row[1]).longValue()));
+        }
+        return reserved;
+    }
+
+    @Override
+    @Transactional
+    public LedgerRebuildResponse rebuild() {
+        // Bloquea todos los productos para que nadie reserve mientras se reconstruye
+        productRepository.lockAll();
+
+        // 1.- Lo que el libro debería tener según las rentas activas
+        Map<BucketKey, Long> expected = new HashMap<>();
+        for (Object[] row : rentalItemRepository.findBookingsByStatuses(ACTIVE_STATUSES)) {
+            // Fila: [rentalId, productId, startDate, endDate, quantity]
+            LocalDateTime bucket = toBucket((LocalDateTime) row[2]);
+            LocalDateTime lastBucket = toBucket((LocalDateTime) row[3]);
+            long quantity = ((Number) row[4]).longValue();
+            for (; !bucket.isAfter(lastBucket); bucket = bucket.plusHours(1)) {
+                expected.merge(new BucketKey((Long) row[1], bucket), quantity, Long::sum);
+            }
+        }
+        // Sin horas en 0 (items con cantidad 0): no se guardan filas vacías
+        expected.values().removeIf(reserved -> reserved == 0);
+
+        // 2.- Lo que tiene ahora, para reportar diferencias
+        Map<BucketKey, Long> current = new HashMap<>();
+        for (Object[] row : ledgerRepository.findAllNonZero()) {
+            current.put(new BucketKey((Long) row[0], (LocalDateTime) row[1]), ((Number) row[2]).longValue());
+        }
+        long mismatched = expected.entrySet().stream()
+                .filter(entry -> !Objects.equals(current.get(entry.getKey()), entry.getValue()))
+                .count()
+                + current.keySet().stream().filter(key -> !expected.containsKey(key)).count();
+
+        // 3.- Regenerar
+        ledgerRepository.deleteAllEntries();
+        List<Object[]> batch = new ArrayList<>(expected.size());
+        expected.forEach((key, reserved) -> batch.add(new Object[]{key.productId(), Timestamp.valueOf(key.bucket()), reserved}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+
+        if (mismatched > 0) {
+            log.warn("El libro de reservas tenía {} horas con diferencias y fue regenerado", mismatched);
+        }
+        return new LedgerRebuildResponse(current.size(), expected.size(), mismatched);
+    }
+
+    // Suma (o resta, con sign = -1) las unidades de la renta en cada hora que toca
+    private void addBuckets(Map<BucketKey, Long> deltas, RentalSnapshot snapshot, int sign) {
+        LocalDateTime firstBucket = toBucket(snapshot.startDate());
+        LocalDateTime lastBucket = toBucket(snapshot.endDate());
+        snapshot.quantities().forEach((productId, quantity) -> {
+            for (LocalDateTime bucket = firstBucket; !bucket.isAfter(lastBucket); bucket = bucket.plusHours(1)) {
+                deltas.merge(new BucketKey(productId, bucket), sign * quantity, Long::sum);
+            }
+        });
+    }
+
+    private static LocalDateTime toBucket(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private record BucketKey(Long productId, LocalDateTime bucket) {
+    }
+}
@@ -6,18 +6,28 @@ package com.enrique.springboot.backend.services;
 
 // Anotaciones de Spring para la inyección de dependencias
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
 // Clases de la librería JJWT para manejar tokens
 import io.jsonwebtoken.Claims;          // Contiene los datos dentro del token
+import io.jsonwebtoken.JwsHeader;       // Encabezado del token firmado (trae el kid)
+import io.jsonwebtoken.JwtException;    // Error al validar un token
+import io.jsonwebtoken.JwtParser;       // Lector de tokens (thread-safe, se reutiliza)
 import io.jsonwebtoken.Jwts;            // Clase principal para crear/leer tokens
+import io.jsonwebtoken.LocatorAdapter;  // Elige la clave según el kid del token
 import io.jsonwebtoken.security.Keys;   // Para generar la clave de la firma
 
 // Clases de seguridad de Java
 import javax.crypto.SecretKey;  // Tipo de clave secreta
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;          // Para manejar fechas de expiración
 import java.util.Map;           // Para manejar datos adicionales en el Token
 import java.util.HashMap;       // Implementación del Map
+import java.util.UUID;          // Id único de cada token (claim "jti")
 
 /*
 * Servicio JWT
@@ -32,28 +42,79 @@ import java.util.HashMap;       // Implementación del Map
 public class JwtService {
 
     // ==================================================
-    // Propiedades inyectadas desde application.properties
+    // Claves (se construyen una sola vez al arrancar)
     // ==================================================
 
-    // @Value inyecta el valor de la propiedad jwt.secret.key
-    @Value("${jwt.secret.key}")
-    private String secretKey;
+    // Tiempo de expiración del access token (jwt.expiration.time, 15 minutos por defecto)
+    private final long expirationTime;
 
-    // @Value inyecta el tiempo de expiración (12 horas en este caso)
-    @Value("${jwt.expiration.time}")
-    private long expirationTime;
+    // Clave con la que se firman los tokens nuevos y su id (header "kid")
+    private final String signingKeyId;
+    private final SecretKey signingKey;
+
+    // Claves aceptadas para verificar, por kid: la actual y las anteriores
+    // Rotación: la clave nueva va en jwt.secret.key (con otro jwt.secret.key-id) y la
+    // anterior pasa a jwt.secret.previous.<kid> hasta que venzan sus tokens
+    private final Map<String, SecretKey> verificationKeys;
+
+    // Parser thread-safe reutilizado en cada verificación
+    private final JwtParser parser;
+
+    /*
+    * @Value inyecta las propiedades jwt.secret.key, jwt.secret.key-id y jwt.expiration.time
+    * Las claves anteriores (jwt.secret.previous.<kid>=<clave>) se leen con Binder
+    */
+    public JwtService(@Value("${jwt.secret.key}") String secretKey,
+                      @Value("${jwt.secret.key-id:default}") String signingKeyId,
+                      @Value("${jwt.expiration.time}") long expirationTime,
+                      Environment environment) {
+        this.expirationTime = expirationTime;
+        this.signingKeyId = signingKeyId;
+        this.signingKey = toKey(secretKey);
+
+        Map<String, SecretKey> keys = new HashMap<>();
+        Binder.get(environment)
+                .bind("jwt.secret.previous", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of())
+                .forEach((kid, secret) -> keys.put(kid, toKey(secret)));
+        keys.put(signingKeyId, signingKey);
+        this.verificationKeys = Map.copyOf(keys);
+
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        // Tokens emitidos antes de usar kid: se verifican con la clave actual
+                        String kid = header.getKeyId();
+                        if (kid == null) {
+                            return signingKey;
+                        }
+                        SecretKey key = verificationKeys.get(kid);
+                        if (key == null) {
+                            throw new JwtException("Clave del token desconocida: " + kid);
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
+    // Duración de un access token en milisegundos
+    public long getExpirationTime() {
+        return expirationTime;
+    }
 
     // ==================================================
     // Método para generar la clave de firma
     // ==================================================
 
     /*
-    * Convierte el string secretKey en un objeto SecretKey
+    * Convierte un string en un objeto SecretKey
     * que puede usar el algoritmo HMAC-SHA256 para firmar
     */
-    private SecretKey getSigningKey() {
+    private static SecretKey toKey(String secret) {
         // Convierte el string a bytes y crea una clave HMAC-SHA
-        return Keys.hmacShaKeyFor(secretKey.getBytes());
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
     }
 
     // ==================================================
@@ -72,16 +133,18 @@ public class JwtService {
         // Fecha actual (momento de creación del token)
         Date now = new Date();
 
-        // Fecha de expiración = ahora + tiempo configurado (12 horas)
+        // Fecha de expiración = ahora + tiempo configurado (jwt.expiration.time)
         Date expirationDate = new Date(now.getTime() + expirationTime);
 
         // Construye y retorna el token
         return Jwts.builder()
+                .header().keyId(signingKeyId).and() // Id de la clave con la que se firma
                 .claims(extraClaims)        // Agrega datos extra (id, role)
+                .id(UUID.randomUUID().toString()) // Id único (para revocarlo en logout)
                 .subject(username)          // El "dueño" del token
                 .issuedAt(now)              // Fecha de creación
                 .expiration(expirationDate) // Fecha de expiración
-                .signWith(getSigningKey())  // Firma con nuestra clave secreta
+                .signWith(signingKey)       // Firma con nuestra clave secreta
                 .compact();                 // Convierte todo a String
     }
 
@@ -101,13 +164,20 @@ public class JwtService {
     * Si es invalido o expiró, lanza excepción
     */
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()                    // Crea un parser de JWT
-                .verifyWith(getSigningKey())    // Usa la clave para verificar
-                .build()                        // Construye el parser
+        return parser                           // Parser creado al arrancar (elige la clave por kid)
                 .parseSignedClaims(token)       // Parsea el token
                 .getPayload();                  // Obtiene los datos (claims)
     }
 
+    /*
+    * Verifica el token (firma y expiración) y regresa sus claims en una sola pasada
+    * Para leer varios datos del mismo token sin verificarlo varias veces
+    * Si es inválido o expiró, lanza excepción
+    */
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
+    }
+
     /*
     * Extrae el username (subject) del token
     */
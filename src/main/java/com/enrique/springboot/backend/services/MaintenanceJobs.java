@@ -0,0 +1,94 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.AggregateReconcileResponse;
+import com.enrique.springboot.backend.dto.AmountPaidVerifyResponse;
+import com.enrique.springboot.backend.dto.LedgerRebuildResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/* Procesos de mantenimiento de los datos derivados (al arrancar y periódicos)
+*
+* Están en su propia clase para llamar a los servicios a través de Spring:
+* así cada proceso corre en la transacción que declara su servicio
+* (una llamada desde la misma clase no pasaría por @Transactional). */
+@Component
+public class MaintenanceJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(MaintenanceJobs.class);
+
+    private final PaymentService paymentService;
+    private final DashboardAggregateService aggregateService;
+    private final InventoryLedgerService inventoryLedgerService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+
+    // Reconstruir el libro de reservas al arrancar la aplicación
+    private final boolean rebuildLedgerOnStartup;
+
+    public MaintenanceJobs(PaymentService paymentService,
+                           DashboardAggregateService aggregateService,
+                           InventoryLedgerService inventoryLedgerService,
+                           RefreshTokenService refreshTokenService,
+                           TokenRevocationService tokenRevocationService,
+                           @Value("${inventory.ledger.rebuild-on-startup:false}") boolean rebuildLedgerOnStartup) {
+        this.paymentService = paymentService;
+        this.aggregateService = aggregateService;
+        this.inventoryLedgerService = inventoryLedgerService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.rebuildLedgerOnStartup = rebuildLedgerOnStartup;
+    }
+
+    /* Al arrancar:
+    * 1.- Llena o corrige rentals.amount_paid (la primera vez la columna está en 0)
+    * 2.- Llena o corrige los contadores del dashboard
+    * 3.- Reconstruye el libro de reservas si se pidió (útil la primera vez que se activa) */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        verifyAmountPaid();
+        reconcileDashboard();
+        if (rebuildLedgerOnStartup) {
+            LedgerRebuildResponse result = inventoryLedgerService.rebuild();
+            log.info("Libro de reservas reconstruido: {} horas con reservas, {} diferencias",
+                    result.getBucketsAfter(), result.getMismatchedBuckets());
+        }
+    }
+
+    // Revisión de rentals.amount_paid (por defecto cada noche a las 4:00)
+    @Scheduled(cron = "${payments.amount-paid.verify-cron:0 0 4 * * *}")
+    public void verifyAmountPaid() {
+        AmountPaidVerifyResponse result = paymentService.verifyAmountPaid();
+        if (result.getMismatched() > 0) {
+            log.warn("Total pagado corregido en {} rentas: {}", result.getMismatched(), result.getRentalIds());
+        }
+    }
+
+    // Revisión de los contadores del dashboard (por defecto cada noche a las 3:30)
+    @Scheduled(cron = "${dashboard.aggregates.reconcile-cron:0 30 3 * * *}")
+    public void reconcileDashboard() {
+        if (!aggregateService.isEnabled()) {
+            return;
+        }
+        AggregateReconcileResponse result = aggregateService.reconcile();
+        if (!result.getDrifts().isEmpty()) {
+            log.warn("Contadores del dashboard corregidos: {} de {} llaves no coincidían",
+                    result.getDrifts().size(), result.getKeysChecked());
+        }
+    }
+
+    // Limpieza de refresh tokens vencidos y de revocaciones de tokens que ya vencieron
+    // (por defecto cada noche a las 4:30)
+    @Scheduled(cron = "${jwt.cleanup-cron:0 30 4 * * *}")
+    public void cleanupTokens() {
+        int refreshTokens = refreshTokenService.deleteExpired();
+        int revocations = tokenRevocationService.deleteExpired();
+        if (refreshTokens > 0 || revocations > 0) {
+            log.info("Tokens vencidos borrados: {} refresh tokens, {} revocaciones", refreshTokens, revocations);
+        }
+    }
+}
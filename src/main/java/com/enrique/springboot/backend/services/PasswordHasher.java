@@ -0,0 +1,93 @@
+package com.enrique.springboot.backend.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Calcula y compara hashes de contraseñas en un pool de hilos limitado
+*
+* BCrypt/Argon2 son lentos a propósito y ocupan un CPU completo. Si toda la
+* plantilla inicia sesión al mismo tiempo, hacerlo en los hilos del servidor
+* deja sin CPU al resto de la API. Aquí como máximo security.password.hashing-threads
+* hashes corren a la vez y security.password.hashing-queue esperan; si la fila
+* está llena o la espera pasa de hashing-timeout-ms se lanza
+* RejectedExecutionException (los controllers responden 503) */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Value("${security.password.hashing-threads:0}") int threads,
+                          @Value("${security.password.hashing-queue:50}") int queueSize,
+                          @Value("${security.password.hashing-timeout-ms:5000}") long timeoutMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+
+        // 0 = la mitad de los procesadores (mínimo 1), para dejar CPU al resto de la API
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // true si la contraseña corresponde al hash guardado
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // Hash nuevo con el algoritmo y parámetros actuales
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // true si el hash se calculó con otro algoritmo o parámetros (hay que recalcularlo)
+    // No calcula ningún hash, solo lee el prefijo; no usa el pool
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Ejecuta en el pool y espera el resultado
+    private <T> T run(Callable<T> task) {
+        Future<T> future = executor.submit(task);
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RejectedExecutionException("Tiempo de espera agotado para calcular el hash", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrumpido mientras se calculaba el hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
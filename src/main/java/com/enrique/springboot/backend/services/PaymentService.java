@@ -1,8 +1,15 @@
 package com.enrique.springboot.backend.services;
 
+import com.enrique.springboot.backend.dto.AmountPaidVerifyResponse;
+import com.enrique.springboot.backend.dto.BulkPaymentResponse;
+import com.enrique.springboot.backend.dto.CreatePaymentRequest;
+import com.enrique.springboot.backend.dto.PaymentResponse.RentalInfo;
+import com.enrique.springboot.backend.dto.UnpaidRentalResponse;
 import com.enrique.springboot.backend.entities.Payment;
+import com.enrique.springboot.backend.enums.RentalStatus;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,11 +25,19 @@ public interface PaymentService {
     // Retorna optional para manejar el caso "no encontrado"
     Optional<Payment> findById(Long id);
 
+    // Busca el pago creado con una llave de idempotencia
+    Optional<Payment> findByIdempotencyKey(String idempotencyKey);
+
     // Guarda un nuevo pago o actualiza uno existente
     // Si el payment tiene id = null, crea uno nuevo
     // Si tiene id, actualiza el existente
     Payment save(Payment payment);
 
+    // Crea muchos pagos a la vez (carga desde JSON o CSV)
+    // Las filas inválidas o de rentas que no existen se reportan y las demás se guardan
+    // Una fila null significa que no se pudo leer (CSV mal formado)
+    BulkPaymentResponse importPayments(List<CreatePaymentRequest> rows);
+
     // Elimina un pago por su ID
     // Retorna el pago eliminado o vacío si no existía
     Optional<Payment> deleteById(Long id);
@@ -33,14 +48,29 @@ public interface PaymentService {
     // Ordenados por fecha (más antiguo primero)
     List<Payment> findByRentalId(Long rentalId);
 
-    // Calcula el total de pagos de una renta
-    // Suma todos los montos de los pagos de esa renta
+    // Total de pagos de una renta
+    // Se lee de rentals.amount_paid, que se mantiene al guardar y eliminar pagos
     Long getTotalPaidByRentalId (Long rentalId);
 
     // Calcula el saldo pendiente de una renta
     // Fórmula: total de la renta - suma de pagos
     Long getPendingBalanceByRentalId (Long rentalId);
 
+    // Total, pagado y pendiente de varias rentas con una sola consulta
+    // Las rentas que no existen no aparecen en el resultado
+    List<RentalInfo> getBalances(Collection<Long> rentalIds);
+
+    // Total, pagado y pendiente de todas las rentas no canceladas que aún deben dinero
+    List<RentalInfo> getOpenBalances();
+
+    // Rentas con los status indicados, terminadas antes de endedBefore y con saldo pendiente
+    // Ordenadas por saldo e id (mayor primero); afterOwed/afterId = última fila de la página anterior
+    List<UnpaidRentalResponse> getUnpaidRentals(Collection<RentalStatus> statuses, LocalDateTime endedBefore,
+                                                Long afterOwed, Long afterId, int limit);
+
+    // Compara rentals.amount_paid contra la suma de pagos y corrige las diferencias
+    AmountPaidVerifyResponse verifyAmountPaid();
+
     /* OPERACIONES POR FECHA (para dashboard) */
 
     // Obtiene pagos realizados en un rango de fechas
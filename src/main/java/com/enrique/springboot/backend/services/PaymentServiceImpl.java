@@ -1,32 +1,99 @@
 package com.enrique.springboot.backend.services;
 
+import com.enrique.springboot.backend.dto.AmountPaidVerifyResponse;
+import com.enrique.springboot.backend.dto.BulkPaymentResponse;
+import com.enrique.springboot.backend.dto.BulkPaymentResponse.RowResult;
+import com.enrique.springboot.backend.dto.CreatePaymentRequest;
+import com.enrique.springboot.backend.dto.PaymentResponse.RentalInfo;
+import com.enrique.springboot.backend.dto.UnpaidRentalResponse;
 import com.enrique.springboot.backend.entities.Payment;
 import com.enrique.springboot.backend.entities.Rental;
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.events.PaymentChangedEvent;
 import com.enrique.springboot.backend.repositories.PaymentRepository;
 import com.enrique.springboot.backend.repositories.RentalRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /* Implementaciòn del servicio de pagos
 * Contiene la lògica de negocio para operaciones con pagos/anticipos */
 @Service
 public class PaymentServiceImpl implements PaymentService {
 
+    /* Carga en lote
+    * Payment usa IDENTITY, así que Hibernate inserta de uno en uno aunque haya
+    * hibernate.jdbc.batch_size (necesita el id de cada fila). Por eso el lote se
+    * inserta con JdbcTemplate; con rewriteBatchedStatements=true en la URL el driver
+    * lo manda como INSERT de varias filas y aun así regresa los ids generados */
+    private static final String INSERT_SQL = """
+            INSERT INTO payments (rental_id, amount, payment_date, notes)
+            VALUES (?, ?, ?, ?)
+            """;
+    private static final String ADD_AMOUNT_PAID_SQL = "UPDATE rentals SET amount_paid = amount_paid + ? WHERE id = ?";
+
+    // Filas por lote de INSERT y rentas por consulta IN
+    private static final int BATCH_SIZE = 500;
+
+    // Largo máximo de payments.notes
+    private static final int MAX_NOTES_LENGTH = 255;
+
     // Repositorio de pagos - inyectado por constructor
     private final PaymentRepository paymentRepository;
 
     // Repositorio de rentas- necesario para calcular saldo pendiente
     private final RentalRepository rentalRepository;
 
+    // Contadores del dashboard - se actualizan junto con cada pago
+    private final DashboardAggregateService aggregateService;
+
+    // Avisa de cada cambio de pago (dashboard en vivo)
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Inserciones en lote (carga masiva)
+    private final JdbcTemplate jdbcTemplate;
+
+    // Valida cada fila de la carga masiva con las mismas reglas que @Valid
+    private final Validator validator;
+
     // Constructor con inyección de dependencias
     // Spring automáticamente inyecta los repositorios
-    public PaymentServiceImpl(PaymentRepository paymentRepository, RentalRepository rentalRepository) {
+    public PaymentServiceImpl(PaymentRepository paymentRepository, RentalRepository rentalRepository,
+                              DashboardAggregateService aggregateService,
+                              ApplicationEventPublisher eventPublisher,
+                              JdbcTemplate jdbcTemplate, Validator validator) {
         this.paymentRepository = paymentRepository;
         this.rentalRepository = rentalRepository;
+        this.aggregateService = aggregateService;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.validator = validator;
     }
 
     /* CRUD básico */
@@ -44,11 +111,31 @@ public class PaymentServiceImpl implements PaymentService {
         return paymentRepository.findById(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Payment> findByIdempotencyKey(String idempotencyKey) {
+        return paymentRepository.findByIdempotencyKey(idempotencyKey);
+    }
+
     @Override
     @Transactional // Transacción de estritura
     public Payment save(Payment payment) {
+        // Si es una edición, primero se resta el pago anterior del total pagado y de los contadores
+        // Con el status de la renta anterior: el pago pudo cambiarse a otra renta
+        if (payment.getId() != null) {
+            for (Object[] row : paymentRepository.findStoredAmountAndDate(payment.getId())) {
+                long previousAmount = ((Number) row[0]).longValue();
+                aggregateService.applyPayment((LocalDateTime) row[1], (RentalStatus) row[3], -previousAmount);
+                addAmountPaid((Long) row[2], payment.getRental(), -previousAmount);
+            }
+        }
+
         // save() funciona para crear (id = null) y actualizar (id existente)
-        return paymentRepository.save(payment);
+        Payment saved = paymentRepository.save(payment);
+        addAmountPaid(saved.getRental().getId(), saved.getRental(), saved.getAmount());
+        aggregateService.applyPayment(saved.getPaymentDate(), saved.getRental().getStatus(), saved.getAmount());
+        eventPublisher.publishEvent(new PaymentChangedEvent(saved.getId(), saved.getRental().getId()));
+        return saved;
     }
 
     @Override
@@ -57,13 +144,151 @@ public class PaymentServiceImpl implements PaymentService {
         // Primero buscamos el pago para retornarlo después de eliminarlo
         Optional<Payment> optionalPayment = paymentRepository.findById(id);
 
-        // Si existe, lo eliminamos
-        optionalPayment.ifPresent(paymentRepository::delete);
+        // Si existe, lo eliminamos y lo restamos del total pagado y de los contadores
+        optionalPayment.ifPresent(payment -> {
+            paymentRepository.delete(payment);
+            addAmountPaid(payment.getRental().getId(), payment.getRental(), -payment.getAmount());
+            aggregateService.applyPayment(payment.getPaymentDate(), payment.getRental().getStatus(),
+                    -payment.getAmount());
+            eventPublisher.publishEvent(new PaymentChangedEvent(payment.getId(), payment.getRental().getId()));
+        });
 
         // Retornamos el pago eliminado (o vacío si no existía)
         return optionalPayment;
     }
 
+    /* Carga masiva
+    * 1.- Valida cada fila (mismas reglas que POST /api/payments)
+    * 2.- Busca todas las rentas en una consulta (por bloques de BATCH_SIZE ids)
+    * 3.- Inserta las filas válidas en lotes de BATCH_SIZE
+    * 4.- Un solo UPDATE de amount_paid por renta y una sola actualización por contador
+    * Todo en una transacción: si falla la base de datos no queda nada a medias */
+    @Override
+    @Transactional
+    public BulkPaymentResponse importPayments(List<CreatePaymentRequest> rows) {
+        RowResult[] results = new RowResult[rows.size()];
+        LocalDateTime now = LocalDateTime.now();
+
+        // 1.- Validar campos
+        List<Integer> valid = new ArrayList<>();
+        Set<Long> rentalIds = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            CreatePaymentRequest row = rows.get(i);
+            String error = validateRow(row);
+            if (error != null) {
+                results[i] = new RowResult(i + 1, row == null ? null : row.getRentalId(), null, error);
+            } else {
+                valid.add(i);
+                rentalIds.add(row.getRentalId());
+            }
+        }
+
+        // 2.- Rentas existentes y su status
+        Map<Long, RentalStatus> statuses = new HashMap<>();
+        List<Long> idList = new ArrayList<>(rentalIds);
+        for (int from = 0; from < idList.size(); from += BATCH_SIZE) {
+            List<Long> chunk = idList.subList(from, Math.min(from + BATCH_SIZE, idList.size()));
+            for (Object[] row : rentalRepository.findStatusesByIdIn(chunk)) {
+                statuses.put((Long) row[0], (RentalStatus) row[1]);
+            }
+        }
+
+        List<Integer> toInsert = new ArrayList<>();
+        for (Integer i : valid) {
+            Long rentalId = rows.get(i).getRentalId();
+            if (statuses.containsKey(rentalId)) {
+                toInsert.add(i);
+            } else {
+                results[i] = new RowResult(i + 1, rentalId, null, "Renta no encontrada");
+            }
+        }
+
+        // 3.- Insertar en lotes y registrar el id generado de cada fila
+        Map<Long, Long> paidByRental = new HashMap<>();
+        Map<LocalDate, Long> amountByDay = new HashMap<>();
+        Map<RentalStatus, Long> amountByStatus = new HashMap<>();
+        for (int from = 0; from < toInsert.size(); from += BATCH_SIZE) {
+            List<Integer> chunk = toInsert.subList(from, Math.min(from + BATCH_SIZE, toInsert.size()));
+            List<Long> ids = insertBatch(rows, chunk, now);
+            for (int j = 0; j < chunk.size(); j++) {
+                int i = chunk.get(j);
+                CreatePaymentRequest row = rows.get(i);
+                LocalDateTime paymentDate = row.getPaymentDate() != null ? row.getPaymentDate() : now;
+                results[i] = new RowResult(i + 1, row.getRentalId(), ids.get(j), null);
+                paidByRental.merge(row.getRentalId(), row.getAmount(), Long::sum);
+                amountByDay.merge(paymentDate.toLocalDate(), row.getAmount(), Long::sum);
+                amountByStatus.merge(statuses.get(row.getRentalId()), row.getAmount(), Long::sum);
+            }
+        }
+
+        // 4.- Total pagado por renta y contadores del dashboard
+        if (!paidByRental.isEmpty()) {
+            List<Object[]> updates = new ArrayList<>(paidByRental.size());
+            // En orden de id para que dos cargas al mismo tiempo no se bloqueen entre sí
+            paidByRental.keySet().stream().sorted()
+                    .forEach(rentalId -> updates.add(new Object[]{paidByRental.get(rentalId), rentalId}));
+            jdbcTemplate.batchUpdate(ADD_AMOUNT_PAID_SQL, updates);
+            aggregateService.applyPayments(amountByDay, amountByStatus);
+            paidByRental.keySet().forEach(rentalId ->
+                    eventPublisher.publishEvent(new PaymentChangedEvent(null, rentalId)));
+        }
+
+        return new BulkPaymentResponse(Arrays.asList(results));
+    }
+
+    // Mensaje de error de una fila de la carga masiva, o null si es válida
+    private String validateRow(CreatePaymentRequest row) {
+        if (row == null) {
+            return "Formato de fila inválido";
+        }
+        Set<ConstraintViolation<CreatePaymentRequest>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        if (row.getNotes() != null && row.getNotes().length() > MAX_NOTES_LENGTH) {
+            return "Las notas no pueden pasar de " + MAX_NOTES_LENGTH + " caracteres";
+        }
+        return null;
+    }
+
+    // Inserta las filas indicadas en un solo lote y regresa sus ids en el mismo orden
+    private List<Long> insertBatch(List<CreatePaymentRequest> rows, List<Integer> indexes, LocalDateTime now) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int j) throws SQLException {
+                        CreatePaymentRequest row = rows.get(indexes.get(j));
+                        LocalDateTime paymentDate = row.getPaymentDate() != null ? row.getPaymentDate() : now;
+                        ps.setLong(1, row.getRentalId());
+                        ps.setLong(2, row.getAmount());
+                        ps.setTimestamp(3, Timestamp.valueOf(paymentDate));
+                        if (row.getNotes() != null) {
+                            ps.setString(4, row.getNotes());
+                        } else {
+                            ps.setNull(4, Types.VARCHAR);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return indexes.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != indexes.size()) {
+            throw new IllegalStateException("El driver no regresó los ids de todos los pagos insertados");
+        }
+        List<Long> ids = new ArrayList<>(keys.size());
+        for (Map<String, Object> key : keys) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
     /* OPERACIONES POR RENTA */
     @Override
     @Transactional(readOnly = true)
@@ -75,8 +300,8 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     @Transactional(readOnly = true)
     public Long getTotalPaidByRentalId(Long rentalId) {
-        // Usa el query del repositorio que suma todos los montos
-        return paymentRepository.sumAmountByRentalId(rentalId);
+        // Total guardado en la renta (sin sumar los pagos)
+        return rentalRepository.findById(rentalId).map(Rental::getAmountPaid).orElse(0L);
     }
 
     @Override
@@ -93,14 +318,98 @@ public class PaymentServiceImpl implements PaymentService {
         // Total de la renta (lo que debe pagar el cliente)
         Long rentalTotal = optionalRental.get().getTotal();
 
-        // Total ya pagado (suma de todos los pagos/anticipos)
-        Long totalPaid = paymentRepository.sumAmountByRentalId(rentalId);
+        // Total ya pagado (suma de todos los pagos/anticipos, guardada en la renta)
+        Long totalPaid = optionalRental.get().getAmountPaid();
 
         // Saldo pendiente = Total - Pagado
         // Ejemplo: Renta $5000 - Pagado $3000 = Pendiente $2000
         return rentalTotal - totalPaid;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<RentalInfo> getBalances(Collection<Long> rentalIds) {
+        if (rentalIds.isEmpty()) {
+            return List.of();
+        }
+        // Una sola consulta agrupada en lugar de 2 por renta
+        return toRentalInfos(paymentRepository.findBalancesByRentalIds(rentalIds));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RentalInfo> getOpenBalances() {
+        // Todas menos las canceladas
+        List<RentalStatus> statusActivos = List.of(
+                RentalStatus.CREATED,
+                RentalStatus.DELIVERED,
+                RentalStatus.PICKED_UP
+        );
+        return toRentalInfos(paymentRepository.findOpenBalances(statusActivos));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UnpaidRentalResponse> getUnpaidRentals(Collection<RentalStatus> statuses, LocalDateTime endedBefore,
+                                                       Long afterOwed, Long afterId, int limit) {
+        if (statuses.isEmpty()) {
+            return List.of();
+        }
+        // Cursor incompleto: se empieza desde el principio
+        boolean hasCursor = afterOwed != null && afterId != null;
+        LocalDateTime now = LocalDateTime.now();
+        return rentalRepository.findUnpaidPage(statuses, endedBefore,
+                        hasCursor ? afterOwed : null, hasCursor ? afterId : null, Limit.of(limit))
+                .stream()
+                .map(row -> new UnpaidRentalResponse(
+                        (Long) row[0],
+                        (Long) row[1],
+                        (String) row[2],
+                        ((RentalStatus) row[3]).name(),
+                        (LocalDateTime) row[4],
+                        (Long) row[5],
+                        (Long) row[6],
+                        Math.max(0, ChronoUnit.DAYS.between((LocalDateTime) row[4], now))
+                ))
+                .toList();
+    }
+
+    /* Busca rentas cuyo amount_paid no coincide con sus pagos y lo recalcula
+    * Se ejecuta al arrancar (también llena la columna la primera vez), cada noche
+    * (MaintenanceJobs) y con POST /api/admin/payments/verify-amount-paid */
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public AmountPaidVerifyResponse verifyAmountPaid() {
+        List<Long> mismatched = rentalRepository.findIdsWithAmountPaidMismatch();
+        mismatched.forEach(rentalRepository::recalculateAmountPaid);
+        return new AmountPaidVerifyResponse(mismatched);
+    }
+
+    /* Suma delta a rentals.amount_paid con un UPDATE atómico
+    * Si la renta cargada en memoria es la misma, también se ajusta su valor,
+    * así la respuesta no necesita volver a consultar */
+    private void addAmountPaid(Long rentalId, Rental loaded, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        rentalRepository.addAmountPaid(rentalId, delta);
+        if (loaded != null && rentalId.equals(loaded.getId()) && loaded.getAmountPaid() != null) {
+            loaded.setAmountPaid(loaded.getAmountPaid() + delta);
+        }
+    }
+
+    // Filas [rentalId, total, pagado, status] -> RentalInfo (calcula el pendiente)
+    private List<RentalInfo> toRentalInfos(List<Object[]> rows) {
+        return rows.stream()
+                .map(row -> new RentalInfo(
+                        (Long) row[0],
+                        (Long) row[1],
+                        ((Number) row[2]).longValue(),
+                        ((RentalStatus) row[3]).name()
+                ))
+                .toList();
+    }
+
     /* OPERACIONES POR FECHA */
     @Override
     @Transactional(readOnly = true)
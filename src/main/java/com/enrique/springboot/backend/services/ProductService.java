@@ -1,5 +1,6 @@
 package com.enrique.springboot.backend.services;
 
+import com.enrique.springboot.backend.dto.ProductCacheStatsResponse;
 import com.enrique.springboot.backend.entities.Product;
 
 import java.util.List;
@@ -11,4 +12,7 @@ public interface ProductService {
     Product save(Product product);
 
     Optional<Product> deleteById (Long id);
+
+    // Aciertos, fallos e invalidaciones del caché del catálogo
+    ProductCacheStatsResponse getCacheStats();
 }
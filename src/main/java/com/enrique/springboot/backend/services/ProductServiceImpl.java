@@ -1,37 +1,101 @@
 package com.enrique.springboot.backend.services;
 
+import com.enrique.springboot.backend.dto.ProductCacheStatsResponse;
 import com.enrique.springboot.backend.entities.Product;
+import com.enrique.springboot.backend.events.ProductChangedEvent;
 import com.enrique.springboot.backend.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/* Implementación del servicio de productos
+*
+* El catálogo casi no cambia, así que findAll/findById leen una foto en memoria:
+* - La foto es inmutable y se reemplaza completa (campo volatile), nunca se edita
+* - Se descarta después del commit de cada save/deleteById (ProductChangedEvent)
+*   y se vuelve a cargar en la siguiente lectura
+* - Guarda copias desconectadas de JPA y nunca las entrega: findAll/findById
+*   regresan copias nuevas, así nadie puede modificar la foto compartida
+* - Si el catálogo pasa de products.cache.max-size no se guarda (se lee de la base) */
 @Service
 public class ProductServiceImpl implements ProductService{
 
     private final ProductRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean cacheEnabled;
+    private final int cacheMaxSize;
 
-    public ProductServiceImpl(ProductRepository repository) {
+    // Foto actual del catálogo; null = hay que cargarla
+    private volatile CatalogSnapshot snapshot;
+
+    // Se incrementa en cada invalidación para no guardar una foto cargada con datos viejos
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ProductServiceImpl(ProductRepository repository, ApplicationEventPublisher eventPublisher,
+                              @Value("${products.cache.enabled:true}") boolean cacheEnabled,
+                              @Value("${products.cache.max-size:5000}") int cacheMaxSize) {
         this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.cacheEnabled = cacheEnabled;
+        this.cacheMaxSize = cacheMaxSize;
     }
 
-    @Transactional(readOnly = true)
+    // Regresa copias: quien las reciba puede modificarlas sin afectar la foto
     @Override
     public List<Product> findAll() {
-        return (List<Product>) repository.findAll();
+        if (!cacheEnabled) {
+            return (List<Product>) repository.findAll();
+        }
+        List<Product> products = snapshot().products();
+        List<Product> copies = new ArrayList<>(products.size());
+        for (Product product : products) {
+            copies.add(copyOf(product));
+        }
+        return copies;
     }
-    @Transactional(readOnly = true)
+
     @Override
     public Optional<Product> findById(Long id) {
-        return repository.findById(id);
+        if (!cacheEnabled) {
+            return repository.findById(id);
+        }
+        Product cached = snapshot().byId().get(id);
+        return cached == null ? Optional.empty() : Optional.of(copyOf(cached));
     }
 
+    // Conserva la versión que trae el producto: si otro cambio se guardó antes,
+    // lanza OptimisticLockingFailureException (el controller responde 409)
     @Transactional
     @Override
     public Product save(Product product) {
-        return repository.save(product);
+        Product saved;
+        try {
+            saved = repository.save(product);
+        } catch (OptimisticLockingFailureException e) {
+            // La foto puede tener una versión vieja: se descarta para que
+            // la siguiente lectura traiga la versión actual
+            invalidate();
+            throw e;
+        }
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId()));
+        return saved;
     }
 
     @Transactional
@@ -40,8 +104,85 @@ public class ProductServiceImpl implements ProductService{
         Optional<Product> optionalProduct = repository.findById(id);
         if (optionalProduct.isPresent()){
             repository.deleteById(id);
+            eventPublisher.publishEvent(new ProductChangedEvent(id));
             return optionalProduct;
         }
         return Optional.empty();
     }
+
+    @Override
+    public ProductCacheStatsResponse getCacheStats() {
+        CatalogSnapshot current = snapshot;
+        return new ProductCacheStatsResponse(
+                cacheEnabled,
+                current != null,
+                current != null ? current.products().size() : 0,
+                generation.get(),
+                hits.sum(),
+                misses.sum(),
+                invalidations.sum()
+        );
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        synchronized (this) {
+            generation.incrementAndGet();
+            snapshot = null;
+        }
+        invalidations.increment();
+    }
+
+    // Foto actual; si no hay, la carga con una consulta
+    private CatalogSnapshot snapshot() {
+        CatalogSnapshot current = snapshot;
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+
+        long loadedGeneration = generation.get();
+        List<Product> products = new ArrayList<>();
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : repository.findAll()) {
+            Product copy = copyOf(product);
+            products.add(copy);
+            byId.put(copy.getId(), copy);
+        }
+        CatalogSnapshot loaded = new CatalogSnapshot(
+                Collections.unmodifiableList(products), Collections.unmodifiableMap(byId));
+
+        // Si hubo cambios mientras se cargaba, se usa para esta lectura pero no se guarda
+        if (products.size() <= cacheMaxSize) {
+            synchronized (this) {
+                if (generation.get() == loadedGeneration) {
+                    snapshot = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // Copia desconectada de JPA (la foto nunca queda ligada a una sesión)
+    private static Product copyOf(Product product) {
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setDescription(product.getDescription());
+        copy.setPrice(product.getPrice());
+        copy.setColor(product.getColor());
+        copy.setStock(product.getStock());
+        copy.setImageUrl(product.getImageUrl());
+        copy.setVersion(product.getVersion());
+        return copy;
+    }
+
+    // Catálogo completo y su índice por id
+    private record CatalogSnapshot(List<Product> products, Map<Long, Product> byId) {
+    }
 }
@@ -0,0 +1,32 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.entities.User;
+
+import java.util.Optional;
+
+/* Interface de los refresh tokens (renovar el access token sin volver a pedir la contraseña) */
+public interface RefreshTokenService {
+
+    // Resultado de usar un refresh token: el usuario y el refresh token nuevo que lo reemplaza
+    record Rotation(User user, String refreshToken) {
+    }
+
+    // Crea un refresh token para el usuario y regresa el valor que se entrega al cliente
+    String issue(User user);
+
+    // Usa un refresh token: lo revoca y entrega uno nuevo
+    // Vacío si no existe, venció o ya se había usado (en ese caso se revocan todos los del usuario)
+    Optional<Rotation> rotate(String refreshToken);
+
+    // Revoca un refresh token (logout); no hace nada si no existe
+    void revoke(String refreshToken);
+
+    // Revoca todos los refresh tokens de un usuario
+    void revokeAllForUser(Long userId);
+
+    // Borra todos los refresh tokens de un usuario (antes de eliminarlo)
+    void deleteAllForUser(Long userId);
+
+    // Borra los refresh tokens vencidos
+    int deleteExpired();
+}
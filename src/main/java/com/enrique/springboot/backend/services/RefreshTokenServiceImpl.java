@@ -0,0 +1,126 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.entities.RefreshToken;
+import com.enrique.springboot.backend.entities.User;
+import com.enrique.springboot.backend.repositories.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+/* Implementación de los refresh tokens
+*
+* - El token es un valor aleatorio de 256 bits; en la tabla solo se guarda su SHA-256
+* - Cada uso lo revoca y entrega otro (rotación)
+* - Si alguien presenta uno ya revocado, otra persona pudo haberlo copiado:
+*   se revocan todos los refresh tokens del usuario */
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenServiceImpl.class);
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom random = new SecureRandom();
+
+    // Días que dura un refresh token
+    private final long expirationDays;
+
+    public RefreshTokenServiceImpl(RefreshTokenRepository refreshTokenRepository,
+                                   @Value("${jwt.refresh.expiration-days:7}") long expirationDays) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.expirationDays = expirationDays;
+    }
+
+    @Override
+    @Transactional
+    public String issue(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.save(new RefreshToken(hash(token), user, now, now.plusDays(expirationDays)));
+        return token;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Rotation> rotate(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return Optional.empty();
+        }
+        Optional<RefreshToken> optionalToken = refreshTokenRepository.findByTokenHashForUpdate(hash(refreshToken));
+        if (optionalToken.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RefreshToken stored = optionalToken.get();
+        LocalDateTime now = LocalDateTime.now();
+        User user = stored.getUser();
+        if (stored.getRevokedAt() != null) {
+            // Reutilización de un token ya usado: se cierran todas las sesiones del usuario
+            log.warn("Refresh token reutilizado para el usuario {}; se revocan todos sus tokens", user.getId());
+            refreshTokenRepository.revokeAllByUserId(user.getId(), now);
+            return Optional.empty();
+        }
+        if (!stored.getExpiresAt().isAfter(now)) {
+            return Optional.empty();
+        }
+
+        stored.setRevokedAt(now);
+        return Optional.of(new Rotation(user, issue(user)));
+    }
+
+    @Override
+    @Transactional
+    public void revoke(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHashForUpdate(hash(refreshToken)).ifPresent(stored -> {
+            if (stored.getRevokedAt() == null) {
+                stored.setRevokedAt(LocalDateTime.now());
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllForUser(Long userId) {
+        refreshTokenRepository.deleteAllByUserId(userId);
+    }
+
+    @Override
+    @Transactional
+    public int deleteExpired() {
+        return refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    // SHA-256 del token en Base64
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las JVM incluyen SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
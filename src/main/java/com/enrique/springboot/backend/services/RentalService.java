@@ -1,16 +1,26 @@
 package com.enrique.springboot.backend.services;
 
 import com.enrique.springboot.backend.dto.CreateRentalRequest;
+import com.enrique.springboot.backend.dto.RentalSearchRequest;
 import com.enrique.springboot.backend.entities.Rental;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface RentalService {
     List<Rental> findAll();
 
     Optional<Rental> findById(Long id);
+
+    // Hasta "limit" rentas que cumplen los filtros, después del cursor, ordenadas por (startDate, id)
+    List<Rental> search(RentalSearchRequest criteria, int limit);
+
+    // Recorre todas las rentas (con cliente, usuario e items) una por una, sin cargarlas todas en memoria
+    // Cada renta que recibe "action" ya está desconectada de la base de datos
+    void exportAll(Consumer<Rental> action);
+
     Rental createRental(
             Rental rental,
             LocalDateTime startDate,
@@ -2,39 +2,122 @@ package com.enrique.springboot.backend.services;
 
 import com.enrique.springboot.backend.dto.CreateRentalRequest;
 import com.enrique.springboot.backend.dto.RentalItemRequest;
+import com.enrique.springboot.backend.dto.RentalSearchRequest;
 import com.enrique.springboot.backend.entities.Product;
 import com.enrique.springboot.backend.entities.Rental;
 import com.enrique.springboot.backend.entities.RentalItem;
 import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.events.RentalChangedEvent;
 import com.enrique.springboot.backend.repositories.*;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/* Servicio de rentas
+*
+* Crear o editar una renta es "leer lo ocupado, comparar con el stock y guardar".
+* Para que dos personas no vendan al mismo tiempo las últimas unidades hay dos
+* estrategias (propiedad rentals.booking.locking):
+* - pessimistic: los productos de la renta se bloquean (SELECT ... FOR UPDATE) en
+*   orden de id, así quien llegue después espera a que el primero termine
+* - optimistic: no se bloquea nada; al hacer commit se incrementa la versión de
+*   reservas de los productos (ProductBookingVersion, no la del catálogo) y, si otra
+*   transacción reservó primero, se reintenta desde cero
+* En ambos casos:
+* - Lo ocupado se lee de la base de datos, no del índice en memoria, que se
+*   actualiza hasta después del commit
+* - Las transacciones usan READ_COMMITTED para que la consulta vea las rentas que
+*   el otro acaba de guardar (con REPEATABLE_READ de MySQL podría seguir viendo
+*   la foto de antes)
+* - Los conflictos de versión (@Version en Rental y ProductBookingVersion) se reintentan con
+*   espera exponencial, hasta rentals.booking.max-attempts veces
+*
+* Cada cambio (crear, editar, cambiar status, eliminar) se refleja en el libro de
+* reservas (InventoryLedgerService) y en los contadores del dashboard
+* (DashboardAggregateService) dentro de la misma transacción, con la diferencia
+* entre la foto de antes y la de después (applyChange) */
 @Service
 public class RentalServiceImpl implements RentalService {
 
     private final RentalRepository rentalRepository;
     private final RentalItemRepository rentalItemRepository;
     private final ProductRepository productRepository;
+    private final ProductBookingVersionRepository bookingVersionRepository;
     private final ClientRepository clientRepository;
     private final UserRepository userRepository;
+    private final AvailabilityService availabilityService;
+    private final InventoryLedgerService inventoryLedgerService;
+    private final DashboardAggregateService aggregateService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+
+    // Transacción de escritura con READ_COMMITTED (ver comentario de la clase)
+    private final TransactionTemplate writeTransaction;
+
+    // true = bloqueo pesimista de productos, false = control optimista con versión
+    private final boolean pessimisticLocking;
+
+    // Reintentos ante conflictos de concurrencia
+    private final int maxAttempts;
+    private final long backoffMillis;
 
     public RentalServiceImpl(
             RentalRepository rentalRepository,
             RentalItemRepository rentalItemRepository,
             ProductRepository productRepository,
+            ProductBookingVersionRepository bookingVersionRepository,
             ClientRepository clientRepository,
-            UserRepository userRepository
+            UserRepository userRepository,
+            AvailabilityService availabilityService,
+            InventoryLedgerService inventoryLedgerService,
+            DashboardAggregateService aggregateService,
+            ApplicationEventPublisher eventPublisher,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${rentals.booking.locking:pessimistic}") String lockingStrategy,
+            @Value("${rentals.booking.max-attempts:4}") int maxAttempts,
+            @Value("${rentals.booking.backoff-ms:25}") long backoffMillis
     ) {
         this.rentalRepository = rentalRepository;
         this.rentalItemRepository = rentalItemRepository;
         this.productRepository = productRepository;
+        this.bookingVersionRepository = bookingVersionRepository;
         this.clientRepository = clientRepository;
         this.userRepository = userRepository;
+        this.availabilityService = availabilityService;
+        this.inventoryLedgerService = inventoryLedgerService;
+        this.aggregateService = aggregateService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.pessimisticLocking = !"optimistic".equalsIgnoreCase(lockingStrategy);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
     }
 
     // ------------------------
@@ -43,13 +126,67 @@ public class RentalServiceImpl implements RentalService {
     @Override
     @Transactional(readOnly = true)
     public List<Rental> findAll() {
-        return (List<Rental>) rentalRepository.findAll();
+        // Trae cliente, usuario, items y productos junto con las rentas (sin N+1)
+        return rentalRepository.findAllWithDetails();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<Rental> findById(Long id) {
-        return rentalRepository.findById(id);
+        return rentalRepository.findByIdWithDetails(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Rental> search(RentalSearchRequest criteria, int limit) {
+        // Cursor incompleto: se empieza desde el principio
+        boolean hasCursor = criteria.getAfterStartDate() != null && criteria.getAfterId() != null;
+
+        // 1.- Solo los ids de la página (usa el índice, sin traer colecciones)
+        List<Long> ids = rentalRepository.findPageIds(
+                criteria.getStatus(),
+                criteria.getClientId(),
+                criteria.getUserId(),
+                criteria.getFrom(),
+                criteria.getTo(),
+                hasCursor ? criteria.getAfterStartDate() : null,
+                hasCursor ? criteria.getAfterId() : null,
+                Limit.of(limit)
+        );
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // 2.- Detalles de esas rentas en una sola consulta
+        return rentalRepository.findAllWithDetailsByIdIn(ids);
+    }
+
+    /* Lee los items ordenados por renta y junta los de cada renta
+    * En cuanto una renta está completa se desconecta todo lo leído (clear) y se entrega,
+    * así la memoria usada no depende del número de rentas */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<Rental> action) {
+        try (Stream<RentalItem> rows = rentalItemRepository.streamAllWithRental()) {
+            Iterator<RentalItem> iterator = rows.iterator();
+            Rental current = null;
+            List<RentalItem> items = new ArrayList<>();
+
+            while (iterator.hasNext()) {
+                RentalItem item = iterator.next();
+                if (current != null && !current.getId().equals(item.getRental().getId())) {
+                    emitDetached(current, items, action);
+                    items = new ArrayList<>();
+                }
+                if (items.isEmpty()) {
+                    current = item.getRental();
+                }
+                items.add(item);
+            }
+            if (current != null) {
+                emitDetached(current, items, action);
+            }
+        }
     }
 
     // ------------------------
@@ -57,89 +194,61 @@ public class RentalServiceImpl implements RentalService {
     // ------------------------
 
     @Override
-    @Transactional
     public Rental createRental(Rental rental, LocalDateTime startDate, LocalDateTime endDate) {
         // No crear rentas sin productos
         if (rental.getItems() == null || rental.getItems().isEmpty()) {
             throw new IllegalArgumentException("La renta debe tener al menos un producto");
         }
 
-        // 1.- Validar fechas
-        if (startDate.isAfter(endDate)) {
-            throw new IllegalArgumentException("La fecha de inicio no puede ser mayor a la fecha fin");
-        }
-        rental.setStartDate(startDate);
-        rental.setEndDate(endDate);
-        rental.setStatus(RentalStatus.CREATED);
+        return inWriteTransaction(() -> {
+            // Si es un reintento, la renta quedó a medio guardar; se limpia para insertarla de nuevo
+            resetForInsert(rental);
 
-        long total = 0;
-
-        // 2.- Validar disponibilidad producto por producto
-        for (RentalItem item : rental.getItems()) {
-
-            Product product = productRepository.findById(item.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
-
-            Long rentedQuantity =
-                    rentalItemRepository.getRentedQuantityByProductAndDates(
-                            product.getId(),
-                            startDate,
-                            endDate,
-                            List.of(RentalStatus.CREATED, RentalStatus.DELIVERED)
-                    );
-
-            long availableStock = product.getStock() - rentedQuantity;
-
-            if (item.getQuantity() > availableStock) {
-                throw new RuntimeException(
-                        "Stock insuficiente para el producto: " + product.getName()
-                );
-            }
-
-            // 3.- Congelar datos del item
-            item.setRental(rental);
-            item.setPrice(product.getPrice());
-
-            total += item.getQuantity() * item.getPrice();
-        }
-
-        rental.setTotal(total);
+            // Cargar (y bloquear o versionar) todos los productos de la renta en una sola consulta
+            Map<Long, Product> products = lockProducts(
+                    rental.getItems().stream().map(item -> item.getProduct().getId()).toList()
+            );
 
-        // 4.- Guardar renta (cascade guarda items)
-        return rentalRepository.save(rental);
+            return saveNewRental(rental, products, startDate, endDate);
+        });
     }
 
     // ------------------------
     // CREAR RENTA FROM DTO (core)
     // ------------------------
     @Override
-    @Transactional
     public Rental createRentalFromDto(CreateRentalRequest request) {
+        return inWriteTransaction(() -> {
 
-        Rental rental = new Rental();
-        rental.setAddress(request.getAddress());
-        rental.setClient(
-                clientRepository.findById(request.getClientId())
-                        .orElseThrow(() -> new RuntimeException("Cliente no encontrado"))
-        );
-        rental.setUser(
-                userRepository.findById(request.getUserId())
-                        .orElseThrow(() -> new RuntimeException("Usuario no encontrado"))
-        );
+            // Cargar (y bloquear o versionar) todos los productos de la renta en una sola consulta
+            Map<Long, Product> products = lockProducts(
+                    request.getItems().stream().map(RentalItemRequest::getProductId).toList()
+            );
 
-        List<RentalItem> items = request.getItems().stream().map(itemReq -> {
-            RentalItem item = new RentalItem();
-            Product product = productRepository.findById(itemReq.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
+            Rental rental = new Rental();
+            rental.setAddress(request.getAddress());
+            rental.setClient(
+                    clientRepository.findById(request.getClientId())
+                            .orElseThrow(() -> new RuntimeException("Cliente no encontrado"))
+            );
+            rental.setUser(
+                    userRepository.findById(request.getUserId())
+                            .orElseThrow(() -> new RuntimeException("Usuario no encontrado"))
+            );
 
-            item.setProduct(product);
-            item.setQuantity(itemReq.getQuantity());
-            return item;
-        }).toList();
+            // Lista mutable: la renta se vuelve a construir desde cero si hay que reintentar
+            List<RentalItem> items = new ArrayList<>();
+            for (RentalItemRequest itemReq : request.getItems()) {
+                RentalItem item = new RentalItem();
+                item.setProduct(products.get(itemReq.getProductId()));
+                item.setQuantity(itemReq.getQuantity());
+                items.add(item);
+            }
 
-        rental.setItems(items);
+            rental.setItems(items);
 
-        return createRental(rental, request.getStartDate(), request.getEndDate());
+            return saveNewRental(rental, products, request.getStartDate(), request.getEndDate());
+        });
     }
 
 
@@ -147,11 +256,29 @@ public class RentalServiceImpl implements RentalService {
     // UPDATE RENTA FROM DTO
     // ------------------------
     @Override
-    @Transactional
     public Rental updateRentalFromDto(Long id, CreateRentalRequest request) {
+        return inWriteTransaction(() -> doUpdateRental(id, request));
+    }
+
+    private Rental doUpdateRental(Long id, CreateRentalRequest request) {
+        // Cargar y bloquear los productos antes de leer nada más
+        Map<Long, Product> products = lockProducts(
+                request.getItems().stream().map(RentalItemRequest::getProductId).toList()
+        );
+
         Rental existingRental = rentalRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Renta no encontrada"));
 
+        // Si el cliente manda la versión que editó y alguien más guardó después,
+        // no sobrescribimos sus cambios (antes ganaba el último en guardar)
+        if (request.getVersion() != null && !request.getVersion().equals(existingRental.getVersion())) {
+            throw new OptimisticLockingFailureException(
+                    "La renta " + id + " fue modificada por alguien más, recarga e intenta de nuevo");
+        }
+
+        // Foto antes de modificar, para actualizar el libro de reservas
+        RentalSnapshot before = RentalSnapshot.of(existingRental);
+
         // Eliminar items anteriores
         existingRental.getItems().clear();
 
@@ -168,22 +295,20 @@ public class RentalServiceImpl implements RentalService {
                         .orElseThrow(() -> new RuntimeException("Usuario no encontrado"))
         );
 
+        // Validar disponibilidad (excluyendo la renta actual), todos los productos de una vez
+        Map<Long, Long> rentedQuantities = availabilityService.getCommittedQuantities(
+                products.keySet(),
+                request.getStartDate(),
+                request.getEndDate(),
+                id
+        );
+
         // Crear nuevos items y calcular total
         long total = 0;
         for (RentalItemRequest itemReq : request.getItems()) {
-            Product product = productRepository.findById(itemReq.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
-
-            // Validar disponibilidad (excluyendo la renta actual)
-            Long rentedQuantity = rentalItemRepository.getRentedQuantityByProductAndDatesExcludingRental(
-                    product.getId(),
-                    request.getStartDate(),
-                    request.getEndDate(),
-                    List.of(RentalStatus.CREATED, RentalStatus.DELIVERED),
-                    id
-            );
+            Product product = products.get(itemReq.getProductId());
 
-            long availableStock = product.getStock() - rentedQuantity;
+            long availableStock = product.getStock() - rentedQuantities.getOrDefault(product.getId(), 0L);
             if (itemReq.getQuantity() > availableStock) {
                 throw new RuntimeException("Stock insuficiente para el producto: " + product.getName());
             }
@@ -200,29 +325,187 @@ public class RentalServiceImpl implements RentalService {
 
         existingRental.setTotal(total);
 
-        return rentalRepository.save(existingRental);
+        Rental saved = rentalRepository.save(existingRental);
+        applyChange(before, RentalSnapshot.of(saved));
+        eventPublisher.publishEvent(new RentalChangedEvent(saved.getId()));
+        return saved;
     }
 
     // ------------------------
     // DELETE
     // ------------------------
     @Override
+    @Transactional
     public Optional<Rental> deleteById(Long id) {
         Optional<Rental> optionalRental = rentalRepository.findById(id);
-        optionalRental.ifPresent(rentalRepository::delete);
+        optionalRental.ifPresent(rental -> {
+            applyChange(RentalSnapshot.of(rental), null);
+            // Los pagos se eliminan en cascada con la renta (su saldo ya se restó con la renta)
+            if (rental.getPayments() != null) {
+                rental.getPayments().forEach(payment ->
+                        aggregateService.applyPayment(payment.getPaymentDate(), null, -payment.getAmount()));
+            }
+            rentalRepository.delete(rental);
+            eventPublisher.publishEvent(new RentalChangedEvent(id));
+        });
         return optionalRental;
     }
     @Override
     public Rental updateStatus(Long id, String status) {
-        Rental rental = rentalRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Rental not found"));
+        return inWriteTransaction(() -> {
+            Rental rental = rentalRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Rental not found"));
+            RentalSnapshot before = RentalSnapshot.of(rental);
+
+            try {
+                RentalStatus rentalStatus = RentalStatus.valueOf(status);
+                rental.setStatus(rentalStatus);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid rental status: " + status);
+            }
+            Rental saved = rentalRepository.save(rental);
+            applyChange(before, RentalSnapshot.of(saved));
+            eventPublisher.publishEvent(new RentalChangedEvent(saved.getId()));
+            return saved;
+        });
+    }
+
+    // ------------------------
+    // HELPERS
+    // ------------------------
+
+    /* Valida disponibilidad, congela precios, calcula el total y guarda una renta nueva
+    * Las unidades ocupadas de todos los productos se obtienen de una sola vez
+    * Los productos ya deben estar bloqueados con lockProducts */
+    private Rental saveNewRental(Rental rental, Map<Long, Product> products,
+                                 LocalDateTime startDate, LocalDateTime endDate) {
+        // 1.- Validar fechas
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("La fecha de inicio no puede ser mayor a la fecha fin");
+        }
+        rental.setStartDate(startDate);
+        rental.setEndDate(endDate);
+        rental.setStatus(RentalStatus.CREATED);
+
+        Map<Long, Long> rentedQuantities =
+                availabilityService.getCommittedQuantities(products.keySet(), startDate, endDate, null);
+
+        long total = 0;
+
+        // 2.- Validar disponibilidad producto por producto
+        for (RentalItem item : rental.getItems()) {
+
+            Product product = products.get(item.getProduct().getId());
+
+            long availableStock = product.getStock() - rentedQuantities.getOrDefault(product.getId(), 0L);
+
+            if (item.getQuantity() > availableStock) {
+                throw new RuntimeException(
+                        "Stock insuficiente para el producto: " + product.getName()
+                );
+            }
+
+            // 3.- Congelar datos del item
+            item.setProduct(product);
+            item.setRental(rental);
+            item.setPrice(product.getPrice());
+
+            total += item.getQuantity() * item.getPrice();
+        }
+
+        rental.setTotal(total);
+
+        // 4.- Guardar renta (cascade guarda items) y reservar en el libro
+        Rental saved = rentalRepository.save(rental);
+        applyChange(null, RentalSnapshot.of(saved));
+        eventPublisher.publishEvent(new RentalChangedEvent(saved.getId()));
+        return saved;
+    }
+
+    // Lleva al libro de reservas y a los contadores del dashboard la diferencia entre dos fotos
+    private void applyChange(RentalSnapshot before, RentalSnapshot after) {
+        inventoryLedgerService.apply(before, after);
+        aggregateService.applyRental(before, after);
+    }
+
+    // Desconecta lo leído hasta ahora y entrega la renta con sus items
+    private void emitDetached(Rental rental, List<RentalItem> items, Consumer<Rental> action) {
+        entityManager.clear();
+        rental.setItems(items);
+        action.accept(rental);
+    }
+
+    /* Carga los productos indicados con una sola consulta, en orden de id
+    * - pessimistic: los bloquea hasta el fin de la transacción
+    * - optimistic: incrementa su versión de reservas al hacer commit, para detectar
+    *   reservas simultáneas (la versión del catálogo no cambia)
+    * Lanza excepción si alguno no existe */
+    private Map<Long, Product> lockProducts(List<Long> productIds) {
+        Set<Long> ids = new HashSet<>(productIds);
+        List<Product> loaded = pessimisticLocking
+                ? productRepository.findAllByIdForUpdate(ids)
+                : productRepository.findByIdInOrderById(ids);
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : loaded) {
+            products.put(product.getId(), product);
+        }
+        if (!products.keySet().containsAll(productIds)) {
+            throw new RuntimeException("Producto no encontrado");
+        }
+        if (!pessimisticLocking) {
+            incrementBookingVersions(ids);
+        }
+        return products;
+    }
+
+    // Versiones de reserva de los productos, incrementadas al hacer commit
+    private void incrementBookingVersions(Set<Long> ids) {
+        if (bookingVersionRepository.findAllByIdWithVersionIncrement(ids).size() < ids.size()) {
+            // Primera reserva de algún producto: se crea su fila y se vuelven a cargar
+            bookingVersionRepository.insertMissing(ids);
+            bookingVersionRepository.findAllByIdWithVersionIncrement(ids);
+        }
+    }
+
+    /* Deja la renta y sus items como nuevos (sin id ni versión) para insertarlos */
+    private void resetForInsert(Rental rental) {
+        rental.setId(null);
+        rental.setVersion(null);
+        List<RentalItem> items = new ArrayList<>(rental.getItems());
+        items.forEach(item -> item.setId(null));
+        rental.setItems(items);
+    }
+
+    /* Ejecuta una escritura en su propia transacción READ_COMMITTED y la reintenta
+    * si choca con otra (conflicto de versión o deadlock), con espera exponencial
+    * Si ya hay una transacción abierta se une a ella y no reintenta: solo quien
+    * abrió la transacción puede repetirla completa */
+    private <T> T inWriteTransaction(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return writeTransaction.execute(status -> work.get());
+            } catch (ObjectOptimisticLockingFailureException | PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                sleepBeforeRetry(attempt);
+            }
+        }
+    }
 
+    // Espera backoff * 2^(intento - 1), con algo de azar para que los reintentos no choquen otra vez
+    private void sleepBeforeRetry(int attempt) {
+        long delay = backoffMillis << (attempt - 1);
         try {
-            RentalStatus rentalStatus = RentalStatus.valueOf(status);
-            rental.setStatus(rentalStatus);
-        } catch (IllegalArgumentException e) {
-            throw new RuntimeException("Invalid rental status: " + status);
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Reintento interrumpido", e);
         }
-        return rentalRepository.save(rental);
     }
 }
@@ -0,0 +1,41 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.entities.Rental;
+import com.enrique.springboot.backend.entities.RentalItem;
+import com.enrique.springboot.backend.enums.RentalStatus;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/* Foto de los datos de una renta que afectan al inventario
+* Se toma antes y después de cada cambio para calcular las diferencias
+* (por ejemplo, qué horas del libro de reservas hay que restar y cuáles sumar,
+* o cuánto cambia el contador de su status y el ingreso de su mes) */
+public record RentalSnapshot(
+        Long rentalId,
+        RentalStatus status,
+        LocalDateTime startDate,
+        LocalDateTime endDate,
+        Long total,
+        Long paid,                      // Suma de pagos de la renta (amount_paid)
+        Map<Long, Long> quantities      // productId -> unidades
+) {
+
+    public static RentalSnapshot of(Rental rental) {
+        Map<Long, Long> quantities = new HashMap<>();
+        if (rental.getItems() != null) {
+            for (RentalItem item : rental.getItems()) {
+                quantities.merge(item.getProduct().getId(), item.getQuantity().longValue(), Long::sum);
+            }
+        }
+        long paid = rental.getAmountPaid() != null ? rental.getAmountPaid() : 0L;
+        return new RentalSnapshot(rental.getId(), rental.getStatus(), rental.getStartDate(), rental.getEndDate(),
+                rental.getTotal(), paid, Map.copyOf(quantities));
+    }
+
+    // Solo las rentas por entregar o por recoger ocupan inventario
+    public boolean occupiesInventory() {
+        return status == RentalStatus.CREATED || status == RentalStatus.DELIVERED;
+    }
+}
@@ -0,0 +1,254 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.events.RentalChangedEvent;
+import com.enrique.springboot.backend.repositories.RentalItemRepository;
+import com.enrique.springboot.backend.services.UsageProfile.Booking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Índice en memoria de las unidades comprometidas por producto
+*
+* Guarda, por producto, las reservas de las rentas activas (CREATED, DELIVERED)
+* y un UsageProfile inmutable para responder en O(log n) el máximo de unidades
+* ocupadas al mismo tiempo en un rango.
+*
+* - Se construye al arrancar la aplicación
+* - Se actualiza con cada RentalChangedEvent (después del commit)
+* - Periódicamente se compara contra la base de datos y se corrige si hay diferencias
+* Mientras no está listo, AvailabilityService usa las consultas de la base de datos */
+@Component
+public class RentalUsageIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(RentalUsageIndex.class);
+
+    // Solo las rentas activas ocupan inventario
+    private static final List<RentalStatus> ACTIVE_STATUSES = List.of(RentalStatus.CREATED, RentalStatus.DELIVERED);
+
+    private final RentalItemRepository rentalItemRepository;
+
+    // Permite apagar el índice y usar siempre la base de datos
+    private final boolean enabled;
+
+    // productId -> reservas del producto (rentalId -> reserva) y su perfil
+    private final Map<Long, ProductUsage> products = new ConcurrentHashMap<>();
+
+    // rentalId -> productos que reserva (para poder quitar la renta del índice)
+    private final Map<Long, Set<Long>> productsByRental = new HashMap<>();
+
+    // Se incrementa en cada cambio; sirve para saber si hubo cambios durante una reconstrucción
+    private long modifications;
+
+    private volatile boolean ready;
+
+    public RentalUsageIndex(RentalItemRepository rentalItemRepository,
+                            @Value("${availability.index.enabled:true}") boolean enabled) {
+        this.rentalItemRepository = rentalItemRepository;
+        this.enabled = enabled;
+    }
+
+    /* Reservas de un producto. El perfil se reemplaza completo en cada cambio */
+    private static final class ProductUsage {
+        private final Map<Long, Booking> bookingsByRental = new HashMap<>();
+        private volatile UsageProfile profile = UsageProfile.EMPTY;
+    }
+
+    // ========================
+    // Consultas
+    // ========================
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /* Máximo de unidades del producto ocupadas al mismo tiempo en [start, end]
+    * Si excludeRentalId no es null, ignora esa renta (para edición) */
+    public long maxBooked(Long productId, LocalDateTime start, LocalDateTime end, Long excludeRentalId) {
+        ProductUsage usage = products.get(productId);
+        if (usage == null) {
+            return 0;
+        }
+        if (excludeRentalId != null) {
+            synchronized (this) {
+                if (usage.bookingsByRental.containsKey(excludeRentalId)) {
+                    // Perfil temporal sin la renta que se está editando
+                    List<Booking> others = new ArrayList<>(usage.bookingsByRental.size());
+                    usage.bookingsByRental.forEach((rentalId, booking) -> {
+                        if (!rentalId.equals(excludeRentalId)) {
+                            others.add(booking);
+                        }
+                    });
+                    return UsageProfile.of(others).maxUsage(start, end);
+                }
+            }
+        }
+        return usage.profile.maxUsage(start, end);
+    }
+
+    // ========================
+    // Mantenimiento
+    // ========================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+            ready = true;
+        } catch (RuntimeException e) {
+            // Sin índice se sigue funcionando con las consultas a la base de datos
+            log.warn("No se pudo construir el índice de disponibilidad: {}", e.getMessage());
+        }
+    }
+
+    /* Recarga las reservas de una renta cuando cambia
+    * Se ejecuta después del commit para no indexar cambios que luego se revierten,
+    * y antes que los demás listeners que leen del índice */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRentalChanged(RentalChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Una renta puede traer el mismo producto en varios items: se suman
+            Map<Long, Booking> bookings = new HashMap<>();
+            for (Object[] row : rentalItemRepository.findBookingsByRentalAndStatuses(event.rentalId(), ACTIVE_STATUSES)) {
+                bookings.merge((Long) row[1], toBooking(row), RentalUsageIndex::addQuantities);
+            }
+            replaceRental(event.rentalId(), bookings);
+        } catch (RuntimeException e) {
+            // Si no podemos actualizarlo, es mejor dejar de usarlo hasta la próxima verificación
+            ready = false;
+            log.warn("No se pudo actualizar el índice para la renta {}: {}", event.rentalId(), e.getMessage());
+        }
+    }
+
+    /* Verificación periódica contra la base de datos
+    * Si encuentra diferencias las registra y reemplaza el índice */
+    @Scheduled(fixedDelayString = "${availability.index.verify-interval-ms:600000}",
+            initialDelayString = "${availability.index.verify-interval-ms:600000}")
+    public void verify() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            boolean replaced = rebuild();
+            if (replaced && ready) {
+                log.warn("El índice de disponibilidad no coincidía con la base de datos y fue reconstruido");
+            }
+            ready = true;
+        } catch (RuntimeException e) {
+            log.warn("No se pudo verificar el índice de disponibilidad: {}", e.getMessage());
+        }
+    }
+
+    /* Carga todas las reservas activas y, si difieren de las actuales, reemplaza el índice
+    * @return true si el índice cambió */
+    private boolean rebuild() {
+        long modificationsBefore;
+        synchronized (this) {
+            modificationsBefore = modifications;
+        }
+
+        // productId -> (rentalId -> reserva); varios items del mismo producto en una renta se suman
+        Map<Long, Map<Long, Booking>> loaded = new HashMap<>();
+        for (Object[] row : rentalItemRepository.findBookingsByStatuses(ACTIVE_STATUSES)) {
+            loaded.computeIfAbsent((Long) row[1], id -> new HashMap<>())
+                    .merge((Long) row[0], toBooking(row), RentalUsageIndex::addQuantities);
+        }
+
+        synchronized (this) {
+            if (modifications != modificationsBefore) {
+                // Hubo cambios mientras cargábamos; lo que leímos podría estar viejo
+                return false;
+            }
+            boolean changed = loaded.size() != products.size();
+            for (Map.Entry<Long, Map<Long, Booking>> entry : loaded.entrySet()) {
+                ProductUsage current = products.get(entry.getKey());
+                if (current == null || !Objects.equals(current.bookingsByRental, entry.getValue())) {
+                    changed = true;
+                    break;
+                }
+            }
+            if (!changed) {
+                return false;
+            }
+
+            products.clear();
+            productsByRental.clear();
+            loaded.forEach((productId, bookings) -> {
+                ProductUsage usage = new ProductUsage();
+                usage.bookingsByRental.putAll(bookings);
+                usage.profile = UsageProfile.of(bookings.values());
+                products.put(productId, usage);
+                bookings.keySet().forEach(rentalId ->
+                        productsByRental.computeIfAbsent(rentalId, id -> new HashSet<>()).add(productId));
+            });
+            modifications++;
+            return true;
+        }
+    }
+
+    /* Reemplaza las reservas de una renta (vacío = la renta ya no ocupa inventario)
+    * Solo se reconstruyen los perfiles de los productos afectados */
+    private synchronized void replaceRental(Long rentalId, Map<Long, Booking> bookingsByProduct) {
+        Set<Long> affected = new HashSet<>(bookingsByProduct.keySet());
+        Set<Long> previous = productsByRental.remove(rentalId);
+        if (previous != null) {
+            affected.addAll(previous);
+        }
+
+        for (Long productId : affected) {
+            ProductUsage usage = products.computeIfAbsent(productId, id -> new ProductUsage());
+            Booking booking = bookingsByProduct.get(productId);
+            if (booking != null) {
+                usage.bookingsByRental.put(rentalId, booking);
+            } else {
+                usage.bookingsByRental.remove(rentalId);
+            }
+
+            if (usage.bookingsByRental.isEmpty()) {
+                products.remove(productId);
+            } else {
+                usage.profile = UsageProfile.of(usage.bookingsByRental.values());
+            }
+        }
+
+        if (!bookingsByProduct.isEmpty()) {
+            productsByRental.put(rentalId, new HashSet<>(bookingsByProduct.keySet()));
+        }
+        modifications++;
+    }
+
+    // Fila: [rentalId, productId, startDate, endDate, quantity]
+    private static Booking toBooking(Object[] row) {
+        return new Booking((LocalDateTime) row[2], (LocalDateTime) row[3], ((Number) row[4]).longValue());
+    }
+
+    // Dos items de la misma renta y producto: mismas fechas, se suman las unidades
+    private static Booking addQuantities(Booking first, Booking second) {
+        return new Booking(first.start(), first.end(), first.quantity() + second.quantity());
+    }
+}
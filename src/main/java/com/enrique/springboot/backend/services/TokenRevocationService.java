@@ -0,0 +1,23 @@
+package com.enrique.springboot.backend.services;
+
+/* Interface del denylist de access tokens (tokens revocados antes de vencer)
+* Se consulta en cada petición, así que isRevoked() solo lee memoria */
+public interface TokenRevocationService {
+
+    // true si el token fue revocado: por su jti o porque se revocaron los tokens de su usuario
+    // issuedAtMillis = claim "iat" del token (precisión de segundos)
+    boolean isRevoked(String jti, String username, long issuedAtMillis);
+
+    // Revoca un token hasta que venza (logout)
+    void revokeToken(String jti, String username, long expiresAtMillis);
+
+    // Revoca todos los tokens de un usuario emitidos hasta ahora, incluido el segundo actual
+    // (usuario eliminado o sesiones cerradas)
+    void revokeAllForUser(String username);
+
+    // Vuelve a leer la tabla (revocaciones hechas en otras instancias) y olvida las vencidas
+    void reload();
+
+    // Borra de la tabla las revocaciones de tokens que ya vencieron
+    int deleteExpired();
+}
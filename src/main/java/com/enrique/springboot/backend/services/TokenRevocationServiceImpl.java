@@ -0,0 +1,132 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.entities.RevokedToken;
+import com.enrique.springboot.backend.repositories.RevokedTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Implementación del denylist de access tokens
+*
+* - En memoria: jti -> vencimiento, y usuario -> corte (tokens emitidos antes del corte no valen)
+*   Dos búsquedas en ConcurrentHashMap por petición, sin consultas a la base de datos
+* - En la tabla revoked_tokens: para no perder revocaciones al reiniciar y para
+*   que otras instancias las vean (reload() cada jwt.revocation.reload-ms)
+* - Cada entrada se olvida cuando vence el último token al que afecta; los access
+*   tokens duran poco (jwt.expiration.time), así que el denylist se mantiene chico */
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationServiceImpl.class);
+
+    // Corte por usuario y hasta cuándo hay que recordarlo
+    private record UserCutoff(long cutoffMillis, long expiresAtMillis) {
+    }
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final JwtService jwtService;
+
+    private final Map<String, Long> revokedJtis = new ConcurrentHashMap<>();
+    private final Map<String, UserCutoff> userCutoffs = new ConcurrentHashMap<>();
+
+    public TokenRevocationServiceImpl(RevokedTokenRepository revokedTokenRepository, JwtService jwtService) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.jwtService = jwtService;
+        // Se carga al crear el bean, antes de que el servidor reciba peticiones
+        reload();
+    }
+
+    @Override
+    public boolean isRevoked(String jti, String username, long issuedAtMillis) {
+        long now = System.currentTimeMillis();
+        if (jti != null) {
+            Long expiresAt = revokedJtis.get(jti);
+            if (expiresAt != null && expiresAt > now) {
+                return true;
+            }
+        }
+        if (username != null) {
+            UserCutoff cutoff = userCutoffs.get(username);
+            // "iat" del JWT viene en segundos: se compara por segundo y los tokens emitidos en el
+            // mismo segundo del corte también se rechazan (no se sabe si fueron antes o después)
+            return cutoff != null && cutoff.expiresAtMillis() > now
+                    && issuedAtMillis / 1000 <= cutoff.cutoffMillis() / 1000;
+        }
+        return false;
+    }
+
+    @Override
+    @Transactional
+    public void revokeToken(String jti, String username, long expiresAtMillis) {
+        if (jti == null || expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        revokedTokenRepository.save(new RevokedToken(jti, username, LocalDateTime.now(), toDateTime(expiresAtMillis)));
+        revokedJtis.merge(jti, expiresAtMillis, Math::max);
+    }
+
+    @Override
+    @Transactional
+    public void revokeAllForUser(String username) {
+        long now = System.currentTimeMillis();
+        // Corte en segundos exactos: así se compara igual que "iat" y la columna DATETIME
+        // lo guarda sin redondear, con el mismo valor que queda en memoria
+        long cutoff = now - now % 1000;
+        // Después de esto ya no queda ningún token emitido antes del corte
+        long expiresAt = now + jwtService.getExpirationTime();
+        revokedTokenRepository.save(new RevokedToken(null, username, toDateTime(cutoff), toDateTime(expiresAt)));
+        addCutoff(username, new UserCutoff(cutoff, expiresAt));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${jwt.revocation.reload-ms:60000}",
+            initialDelayString = "${jwt.revocation.reload-ms:60000}")
+    public void reload() {
+        try {
+            // Se agregan a lo que ya hay (no se reemplaza) para no perder una revocación
+            // hecha mientras se leía la tabla
+            for (RevokedToken revoked : revokedTokenRepository.findActive(LocalDateTime.now())) {
+                long expiresAt = toMillis(revoked.getExpiresAt());
+                if (revoked.getJti() != null) {
+                    revokedJtis.merge(revoked.getJti(), expiresAt, Math::max);
+                } else {
+                    addCutoff(revoked.getUsername(), new UserCutoff(toMillis(revoked.getRevokedAt()), expiresAt));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo leer la lista de tokens revocados: {}", e.getMessage());
+        }
+
+        long now = System.currentTimeMillis();
+        revokedJtis.values().removeIf(expiresAt -> expiresAt <= now);
+        userCutoffs.values().removeIf(cutoff -> cutoff.expiresAtMillis() <= now);
+    }
+
+    @Override
+    @Transactional
+    public int deleteExpired() {
+        return revokedTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    // Se queda con el corte más reciente y el vencimiento más lejano
+    private void addCutoff(String username, UserCutoff cutoff) {
+        userCutoffs.merge(username, cutoff, (a, b) -> new UserCutoff(
+                Math.max(a.cutoffMillis(), b.cutoffMillis()),
+                Math.max(a.expiresAtMillis(), b.expiresAtMillis())));
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return new Timestamp(millis).toLocalDateTime();
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return Timestamp.valueOf(dateTime).getTime();
+    }
+}
@@ -0,0 +1,164 @@
+package com.enrique.springboot.backend.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+
+/* Perfil de ocupación de un producto en el tiempo
+*
+* Se construye una sola vez con un barrido (sweep) sobre los inicios y fines
+* de las reservas y después responde en tiempo logarítmico:
+* "¿cuántas unidades están reservadas al mismo tiempo, como máximo, en [inicio, fin]?"
+*
+* Las reservas son intervalos cerrados [inicio, fin], igual que en las consultas
+* de RentalItemRepository (startDate <= :endDate AND endDate >= :startDate).
+* Es inmutable, por lo que se puede compartir entre hilos sin sincronización. */
+public final class UsageProfile {
+
+    public static final UsageProfile EMPTY = new UsageProfile(new long[0], new long[0], new long[0]);
+
+    // Instantes (segundos epoch) donde empieza o termina alguna reserva, ordenados y sin repetir
+    private final long[] points;
+
+    // Unidades ocupadas exactamente en points[i]
+    private final long[] level;
+
+    // Unidades ocupadas en el intervalo abierto (points[i], points[i + 1])
+    private final long[] open;
+
+    // Tabla dispersa (sparse table) para el máximo de level en un rango en O(1)
+    private final long[][] maxTable;
+
+    private UsageProfile(long[] points, long[] level, long[] open) {
+        this.points = points;
+        this.level = level;
+        this.open = open;
+        this.maxTable = buildMaxTable(level);
+    }
+
+    /* Una reserva: cantidad de unidades ocupadas de inicio a fin (ambos incluidos) */
+    public record Booking(LocalDateTime start, LocalDateTime end, long quantity) {
+    }
+
+    /* Construye el perfil con un barrido sobre los eventos de inicio y fin
+    * O(n log n) por el ordenamiento */
+    public static UsageProfile of(Collection<Booking> bookings) {
+        int n = bookings.size();
+        if (n == 0) {
+            return EMPTY;
+        }
+
+        long[][] starts = new long[n][];
+        long[][] ends = new long[n][];
+        long[] allPoints = new long[n * 2];
+        int i = 0;
+        for (Booking booking : bookings) {
+            long start = toSeconds(booking.start());
+            long end = toSeconds(booking.end());
+            starts[i] = new long[]{start, booking.quantity()};
+            ends[i] = new long[]{end, booking.quantity()};
+            allPoints[i * 2] = start;
+            allPoints[i * 2 + 1] = end;
+            i++;
+        }
+        Arrays.sort(starts, (a, b) -> Long.compare(a[0], b[0]));
+        Arrays.sort(ends, (a, b) -> Long.compare(a[0], b[0]));
+
+        long[] points = Arrays.stream(allPoints).sorted().distinct().toArray();
+        long[] level = new long[points.length];
+        long[] open = new long[points.length];
+
+        int si = 0;
+        int ei = 0;
+        long started = 0;       // unidades cuyas reservas empiezan en o antes del punto
+        long endedBefore = 0;   // unidades cuyas reservas terminaron antes del punto
+        for (int p = 0; p < points.length; p++) {
+            long point = points[p];
+            while (si < n && starts[si][0] <= point) {
+                started += starts[si++][1];
+            }
+            while (ei < n && ends[ei][0] < point) {
+                endedBefore += ends[ei++][1];
+            }
+            long endingHere = 0;
+            for (int ej = ei; ej < n && ends[ej][0] == point; ej++) {
+                endingHere += ends[ej][1];
+            }
+            level[p] = started - endedBefore;
+            open[p] = level[p] - endingHere;
+        }
+
+        return new UsageProfile(points, level, open);
+    }
+
+    /* Máximo de unidades ocupadas simultáneamente en algún instante de [start, end]
+    * O(log n): dos búsquedas binarias y una consulta a la tabla dispersa */
+    public long maxUsage(LocalDateTime start, LocalDateTime end) {
+        if (points.length == 0) {
+            return 0;
+        }
+        long from = toSeconds(start);
+        long to = toSeconds(end);
+
+        int lo = lowerBound(from);          // primer punto >= from
+        int hi = lowerBound(to + 1) - 1;    // último punto <= to
+
+        long max = 0;
+        // Si "from" cae entre dos puntos, cuenta lo que está ocupado en ese tramo
+        if ((lo == points.length || points[lo] != from) && lo > 0) {
+            max = open[lo - 1];
+        }
+        // El nivel solo sube en los puntos, así que el máximo dentro del rango está en uno de ellos
+        if (lo <= hi) {
+            max = Math.max(max, rangeMax(lo, hi));
+        }
+        return max;
+    }
+
+    public boolean isEmpty() {
+        return points.length == 0;
+    }
+
+    private int lowerBound(long value) {
+        int lo = 0;
+        int hi = points.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (points[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private long rangeMax(int from, int to) {
+        int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+        return Math.max(maxTable[k][from], maxTable[k][to - (1 << k) + 1]);
+    }
+
+    private static long[][] buildMaxTable(long[] values) {
+        int n = values.length;
+        if (n == 0) {
+            return new long[0][];
+        }
+        int levels = 32 - Integer.numberOfLeadingZeros(n);
+        long[][] table = new long[levels][];
+        table[0] = values;
+        for (int k = 1; k < levels; k++) {
+            int width = 1 << k;
+            int half = width >> 1;
+            table[k] = new long[n - width + 1];
+            for (int i = 0; i + width <= n; i++) {
+                table[k][i] = Math.max(table[k - 1][i], table[k - 1][i + half]);
+            }
+        }
+        return table;
+    }
+
+    private static long toSeconds(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+}
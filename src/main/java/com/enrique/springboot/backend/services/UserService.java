@@ -12,5 +12,8 @@ public interface UserService {
 
     User save(User user);
     Optional<User> deleteById(Long id);
+
+    // Cierra todas las sesiones del usuario: revoca sus refresh tokens y sus access tokens vigentes
+    Optional<User> revokeSessions(Long id);
     Optional<User> login(String username, String password);
 }
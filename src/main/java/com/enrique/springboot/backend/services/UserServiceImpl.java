@@ -2,26 +2,39 @@ package com.enrique.springboot.backend.services;
 
 import com.enrique.springboot.backend.entities.User;
 import com.enrique.springboot.backend.repositories.UserRepository;
+import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-// Para inyectar el bean de BCryptPasswordEncoder
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class UserServiceImpl implements UserService {
 
     private final UserRepository repository;
 
-    // Inyectamos el PasswordEncoder del bean que se encuentra en SecurityConfig
-    private final PasswordEncoder passwordEncoder;
+    // Usa el PasswordEncoder del bean que se encuentra en SecurityConfig, en un pool limitado
+    private final PasswordHasher passwordHasher;
+
+    // Refresh tokens y tokens revocados (cerrar sesiones al eliminar un usuario)
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+
+    // Para desconectar el usuario del login antes de borrarle el password de la respuesta
+    private final EntityManager entityManager;
 
     // Constructor con inyección de dependencia
-    public UserServiceImpl(UserRepository repository, PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository repository, PasswordHasher passwordHasher,
+                           RefreshTokenService refreshTokenService,
+                           TokenRevocationService tokenRevocationService,
+                           EntityManager entityManager) {
         this.repository = repository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.entityManager = entityManager;
     }
 
     // CRUD
@@ -47,7 +60,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public User save(User user) {
         // encriptamos contraseña antes de guardar
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHasher.encode(user.getPassword()));
         return repository.save(user);
     }
 
@@ -56,16 +69,31 @@ public class UserServiceImpl implements UserService {
     public Optional<User> deleteById(Long id) {
         Optional<User> optionalUser = repository.findById(id);
         if (optionalUser.isPresent()) {
+            // Sus refresh tokens se borran y sus access tokens dejan de valer de inmediato
+            refreshTokenService.deleteAllForUser(id);
+            tokenRevocationService.revokeAllForUser(optionalUser.get().getUsername());
             repository.deleteById(id);
             return optionalUser;
         }
         return Optional.empty();
     }
 
+    @Transactional
+    @Override
+    public Optional<User> revokeSessions(Long id) {
+        Optional<User> optionalUser = repository.findById(id);
+        optionalUser.ifPresent(user -> {
+            refreshTokenService.revokeAllForUser(id);
+            tokenRevocationService.revokeAllForUser(user.getUsername());
+        });
+        return optionalUser;
+    }
+
     // -------------------
     // LOGIN
     // -------------------
 
+    // Lanza RejectedExecutionException si hay demasiados logins al mismo tiempo (ver PasswordHasher)
     @Override
     public Optional<User> login(String username, String password) {
 
@@ -74,9 +102,23 @@ public class UserServiceImpl implements UserService {
         if (userOptional.isPresent()) {
             User user = userOptional.get();
 
-            // Verificar contraseña usando BCrypt matches()
+            // Verificar contraseña usando matches()
             // Compara la contraseña en texto plano con el hash guardado
-            if (passwordEncoder.matches(password, user.getPassword())) {
+            String storedHash = user.getPassword();
+            if (passwordHasher.matches(password, storedHash)) {
+                // Hash con algoritmo o costo anterior: se recalcula ahora que se conoce la contraseña
+                if (passwordHasher.needsRehash(storedHash)) {
+                    try {
+                        repository.updatePassword(user.getId(), passwordHasher.encode(password));
+                    } catch (RejectedExecutionException e) {
+                        // Pool ocupado: no se detiene el login, se intenta en el siguiente
+                    }
+                }
+                // Desconectado de JPA: borrar el password de la respuesta no debe guardarse
+                // en la base de datos si después hay otra transacción en la misma petición
+                if (entityManager.contains(user)) {
+                    entityManager.detach(user);
+                }
                 user.setPassword(null); // NUNCA regresar el password
                 return Optional.of(user);
             }
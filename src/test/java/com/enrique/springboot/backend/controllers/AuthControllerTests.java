@@ -0,0 +1,76 @@
+package com.enrique.springboot.backend.controllers;
+
+import com.enrique.springboot.backend.security.VerifiedTokenCache;
+import com.enrique.springboot.backend.services.JwtService;
+import com.enrique.springboot.backend.services.RefreshTokenService;
+import com.enrique.springboot.backend.services.TokenRevocationService;
+import com.enrique.springboot.backend.services.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/* Respuestas HTTP del login con los servicios simulados (sin base de datos) */
+@ExtendWith(MockitoExtension.class)
+class AuthControllerTests {
+
+    private static final String LOGIN_BODY = """
+            {"username": "ana", "password": "secreta"}
+            """;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private JwtService jwtService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private VerifiedTokenCache tokenCache;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new AuthController(
+                userService, jwtService, refreshTokenService, tokenRevocationService, tokenCache)).build();
+    }
+
+    @Test
+    void saturatedPasswordPoolAnswers503WithRetryAfter() throws Exception {
+        when(userService.login(any(), any())).thenThrow(new RejectedExecutionException("Pool lleno"));
+
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN_BODY))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+        verifyNoInteractions(refreshTokenService, jwtService);
+    }
+
+    @Test
+    void wrongCredentialsAnswer401() throws Exception {
+        when(userService.login("ana", "secreta")).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN_BODY))
+                .andExpect(status().isUnauthorized());
+        verifyNoInteractions(refreshTokenService, jwtService);
+    }
+}
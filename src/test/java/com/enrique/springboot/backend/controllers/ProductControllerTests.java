@@ -0,0 +1,110 @@
+package com.enrique.springboot.backend.controllers;
+
+import com.enrique.springboot.backend.entities.Product;
+import com.enrique.springboot.backend.services.AvailabilityService;
+import com.enrique.springboot.backend.services.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/* Edición de productos con control de versión, con el servicio simulado (sin base de datos) */
+@ExtendWith(MockitoExtension.class)
+class ProductControllerTests {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private AvailabilityService availabilityService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ProductController(productService, availabilityService)).build();
+    }
+
+    @Test
+    void updateWithTheStoredVersionIsSaved() throws Exception {
+        when(productService.findById(5L)).thenReturn(Optional.of(product(7L)));
+        when(productService.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(put("/api/products/5").contentType(MediaType.APPLICATION_JSON).content(body(7L)))
+                .andExpect(status().isCreated());
+
+        ArgumentCaptor<Product> saved = ArgumentCaptor.forClass(Product.class);
+        verify(productService).save(saved.capture());
+        assertEquals(7L, saved.getValue().getVersion());
+        assertEquals("Silla nueva", saved.getValue().getName());
+    }
+
+    @Test
+    void updateWithoutVersionUsesTheOneFromTheRead() throws Exception {
+        when(productService.findById(5L)).thenReturn(Optional.of(product(7L)));
+        when(productService.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(put("/api/products/5").contentType(MediaType.APPLICATION_JSON).content(body(null)))
+                .andExpect(status().isCreated());
+
+        ArgumentCaptor<Product> saved = ArgumentCaptor.forClass(Product.class);
+        verify(productService).save(saved.capture());
+        assertEquals(7L, saved.getValue().getVersion());
+    }
+
+    @Test
+    void staleClientVersionIsConflictWithoutSaving() throws Exception {
+        Product stored = product(7L);
+        when(productService.findById(5L)).thenReturn(Optional.of(stored));
+
+        mockMvc.perform(put("/api/products/5").contentType(MediaType.APPLICATION_JSON).content(body(4L)))
+                .andExpect(status().isConflict());
+
+        verify(productService, never()).save(any());
+        assertEquals("Silla", stored.getName(), "El producto leído no se modifica");
+    }
+
+    @Test
+    void concurrentSaveIsConflict() throws Exception {
+        when(productService.findById(5L)).thenReturn(Optional.of(product(7L)));
+        when(productService.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 5L));
+
+        mockMvc.perform(put("/api/products/5").contentType(MediaType.APPLICATION_JSON).content(body(7L)))
+                .andExpect(status().isConflict());
+    }
+
+    private static Product product(Long version) {
+        Product product = new Product();
+        product.setId(5L);
+        product.setName("Silla");
+        product.setDescription("Silla plegable");
+        product.setPrice(100L);
+        product.setColor("Blanco");
+        product.setStock(10L);
+        product.setVersion(version);
+        return product;
+    }
+
+    private static String body(Long version) {
+        return """
+                {"name": "Silla nueva", "description": "Silla plegable", "price": 120,
+                 "color": "Blanco", "stock": 10, "version": %s}
+                """.formatted(version);
+    }
+}
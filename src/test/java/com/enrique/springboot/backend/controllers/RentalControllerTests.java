@@ -0,0 +1,164 @@
+package com.enrique.springboot.backend.controllers;
+
+import com.enrique.springboot.backend.dto.RentalSearchRequest;
+import com.enrique.springboot.backend.entities.Client;
+import com.enrique.springboot.backend.entities.Rental;
+import com.enrique.springboot.backend.entities.User;
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.services.RentalService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/* Respuestas HTTP de RentalController con el servicio simulado (sin base de datos):
+* cursor de la búsqueda por páginas y conflictos de versión */
+@ExtendWith(MockitoExtension.class)
+class RentalControllerTests {
+
+    private static final String UPDATE_BODY = """
+            {
+              "startDate": "2026-05-01T10:00:00",
+              "endDate": "2026-05-02T10:00:00",
+              "clientId": 1,
+              "userId": 1,
+              "address": "Calle de prueba",
+              "items": [{"productId": 1, "quantity": 2}],
+              "version": 3
+            }
+            """;
+
+    @Mock
+    private RentalService rentalService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // Mismo Jackson que Spring Boot: fechas ISO ("2026-05-02T10:00:00"), no arreglos
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        mockMvc = MockMvcBuilders.standaloneSetup(new RentalController(rentalService, objectMapper))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    @Test
+    void fullPageReturnsCursorOfItsLastRental() throws Exception {
+        // Se pide uno de más: si llega, hay otra página y el cursor es el último de esta
+        when(rentalService.search(any(), eq(3))).thenReturn(List.of(rental(1L, 1), rental(2L, 2), rental(3L, 3)));
+
+        mockMvc.perform(get("/api/rentals/search").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andExpect(jsonPath("$.nextId").value(2))
+                .andExpect(jsonPath("$.nextStartDate").value("2026-05-02T10:00:00"));
+    }
+
+    @Test
+    void lastPageHasNoCursor() throws Exception {
+        when(rentalService.search(any(), eq(3))).thenReturn(List.of(rental(1L, 1), rental(2L, 2)));
+
+        mockMvc.perform(get("/api/rentals/search").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andExpect(jsonPath("$.nextId").doesNotExist())
+                .andExpect(jsonPath("$.nextStartDate").doesNotExist());
+    }
+
+    @Test
+    void cursorIsPassedToTheServiceAndSizeIsClamped() throws Exception {
+        when(rentalService.search(any(), anyInt())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/rentals/search")
+                        .param("afterStartDate", "2026-05-02T10:00:00")
+                        .param("afterId", "2")
+                        .param("size", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasMore").value(false));
+        mockMvc.perform(get("/api/rentals/search").param("size", "0"))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<RentalSearchRequest> criteria = ArgumentCaptor.forClass(RentalSearchRequest.class);
+        ArgumentCaptor<Integer> limit = ArgumentCaptor.forClass(Integer.class);
+        verify(rentalService, times(2)).search(criteria.capture(), limit.capture());
+        assertEquals(LocalDateTime.of(2026, 5, 2, 10, 0), criteria.getAllValues().get(0).getAfterStartDate());
+        assertEquals(2L, criteria.getAllValues().get(0).getAfterId());
+        // Tamaño entre 1 y 100, más uno para saber si hay otra página
+        assertEquals(List.of(101, 2), limit.getAllValues());
+    }
+
+    @Test
+    void staleVersionOnUpdateIsConflict() throws Exception {
+        when(rentalService.updateRentalFromDto(eq(10L), any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Rental.class, 10L));
+
+        mockMvc.perform(put("/api/rentals/10").contentType(MediaType.APPLICATION_JSON).content(UPDATE_BODY))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void concurrentStatusChangeIsConflict() throws Exception {
+        when(rentalService.updateStatus(10L, "DELIVERED"))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Rental.class, 10L));
+
+        mockMvc.perform(put("/api/rentals/10/status").param("status", "DELIVERED"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void missingRentalOnUpdateIsNotFound() throws Exception {
+        when(rentalService.updateRentalFromDto(eq(10L), any())).thenThrow(new RuntimeException("Renta no encontrada"));
+
+        mockMvc.perform(put("/api/rentals/10").contentType(MediaType.APPLICATION_JSON).content(UPDATE_BODY))
+                .andExpect(status().isNotFound());
+    }
+
+    private static Rental rental(Long id, int day) {
+        Client client = new Client();
+        client.setId(1L);
+        client.setNombre("Cliente");
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("usuario");
+
+        Rental rental = new Rental();
+        rental.setId(id);
+        rental.setStartDate(LocalDateTime.of(2026, 5, day, 10, 0));
+        rental.setEndDate(LocalDateTime.of(2026, 5, day + 1, 10, 0));
+        rental.setStatus(RentalStatus.CREATED);
+        rental.setTotal(0L);
+        rental.setClient(client);
+        rental.setUser(user);
+        rental.setItems(List.of());
+        return rental;
+    }
+}
@@ -0,0 +1,110 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.ProductAvailabilityResponse;
+import com.enrique.springboot.backend.entities.Product;
+import com.enrique.springboot.backend.repositories.RentalItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/* Disponibilidad de todo el catálogo sin índice en memoria:
+* una sola consulta sin importar cuántos productos haya, y ocupado = máximo simultáneo */
+@ExtendWith(MockitoExtension.class)
+class AvailabilityServiceImplTests {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 5, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2026, 5, 10, 23, 59);
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private RentalItemRepository rentalItemRepository;
+
+    @Mock
+    private RentalUsageIndex usageIndex;
+
+    @Mock
+    private InventoryLedgerService inventoryLedgerService;
+
+    private AvailabilityServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AvailabilityServiceImpl(productService, rentalItemRepository, usageIndex, inventoryLedgerService);
+    }
+
+    @Test
+    void catalogAvailabilityUsesOneQueryAndPeakUsage() {
+        when(productService.findAll()).thenReturn(List.of(
+                product(1L, 10L), product(2L, 5L), product(3L, 2L)));
+        when(rentalItemRepository.findBookingsBetweenDates(eq(FROM), eq(TO), anyList())).thenReturn(List.of(
+                // Producto 1: dos rentas que no se cruzan -> ocupa 4, no 7
+                row(100L, 1L, day(2), day(3), 4),
+                row(101L, 1L, day(5), day(6), 3),
+                // Producto 2: dos rentas que se cruzan -> ocupa 2 + 2
+                row(102L, 2L, day(2), day(6), 2),
+                row(103L, 2L, day(4), day(8), 2)
+        ));
+
+        Map<Long, ProductAvailabilityResponse> result = service.getAvailability(FROM, TO).stream()
+                .collect(Collectors.toMap(ProductAvailabilityResponse::getId, Function.identity()));
+
+        assertEquals(4L, result.get(1L).getRentedQuantity());
+        assertEquals(6L, result.get(1L).getAvailableStock());
+        assertEquals(4L, result.get(2L).getRentedQuantity());
+        assertEquals(1L, result.get(2L).getAvailableStock());
+        // Sin rentas en el rango: no aparece en la consulta y cuenta como 0
+        assertEquals(0L, result.get(3L).getRentedQuantity());
+        assertEquals(2L, result.get(3L).getAvailableStock());
+
+        verify(rentalItemRepository, times(1)).findBookingsBetweenDates(any(), any(), anyList());
+        verifyNoMoreInteractions(rentalItemRepository);
+    }
+
+    @Test
+    void committedQuantitiesIgnoreTheRentalBeingEdited() {
+        when(rentalItemRepository.findBookingsByProductsBetweenDates(eq(List.of(1L)), eq(FROM), eq(TO), anyList()))
+                .thenReturn(List.of(
+                        row(100L, 1L, day(2), day(4), 4),
+                        row(101L, 1L, day(3), day(5), 3)
+                ));
+
+        assertEquals(Map.of(1L, 7L), service.getCommittedQuantities(List.of(1L), FROM, TO, null));
+        assertEquals(Map.of(1L, 3L), service.getCommittedQuantities(List.of(1L), FROM, TO, 100L));
+    }
+
+    private static Product product(Long id, Long stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Producto " + id);
+        product.setStock(stock);
+        return product;
+    }
+
+    private static LocalDateTime day(int dayOfMonth) {
+        return LocalDateTime.of(2026, 5, dayOfMonth, 10, 0);
+    }
+
+    // Misma forma que las filas de RentalItemRepository: [rentalId, productId, startDate, endDate, quantity]
+    private static Object[] row(Long rentalId, Long productId, LocalDateTime start, LocalDateTime end, int quantity) {
+        return new Object[]{rentalId, productId, start, end, quantity};
+    }
+}
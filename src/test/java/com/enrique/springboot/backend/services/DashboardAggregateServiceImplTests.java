@@ -0,0 +1,150 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.repositories.DashboardAggregateRepository;
+import com.enrique.springboot.backend.repositories.PaymentRepository;
+import com.enrique.springboot.backend.repositories.RentalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/* Diferencias que se aplican a los contadores del dashboard
+* Las llaves siempre se actualizan en orden alfabético y, dentro de una transacción,
+* una sola vez justo antes del commit */
+@ExtendWith(MockitoExtension.class)
+class DashboardAggregateServiceImplTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 5, 6, 10, 0);
+
+    @Mock
+    private DashboardAggregateRepository aggregateRepository;
+
+    @Mock
+    private RentalRepository rentalRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    private DashboardAggregateServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DashboardAggregateServiceImpl(aggregateRepository, rentalRepository, paymentRepository, true);
+    }
+
+    @Test
+    void newRentalAddsStatusRevenueAndOutstanding() {
+        service.applyRental(null, snapshot(RentalStatus.CREATED, 1000L, 200L));
+
+        InOrder order = inOrder(aggregateRepository);
+        order.verify(aggregateRepository).addToValue("OUTSTANDING", 800L);
+        order.verify(aggregateRepository).addToValue("REVENUE:2026-05", 1000L);
+        order.verify(aggregateRepository).addToValue("REVENUE_DAY:2026-05-06", 1000L);
+        order.verify(aggregateRepository).addToValue("STATUS:CREATED", 1L);
+        verifyNoMoreInteractions(aggregateRepository);
+    }
+
+    @Test
+    void cancellingRemovesRevenueAndMovesTheCount() {
+        service.applyRental(snapshot(RentalStatus.CREATED, 1000L, 200L), snapshot(RentalStatus.CANCELLED, 1000L, 200L));
+
+        InOrder order = inOrder(aggregateRepository);
+        order.verify(aggregateRepository).addToValue("OUTSTANDING", -800L);
+        order.verify(aggregateRepository).addToValue("REVENUE:2026-05", -1000L);
+        order.verify(aggregateRepository).addToValue("REVENUE_DAY:2026-05-06", -1000L);
+        order.verify(aggregateRepository).addToValue("STATUS:CANCELLED", 1L);
+        order.verify(aggregateRepository).addToValue("STATUS:CREATED", -1L);
+        verifyNoMoreInteractions(aggregateRepository);
+    }
+
+    @Test
+    void changingBetweenRevenueStatusesOnlyMovesTheCount() {
+        service.applyRental(snapshot(RentalStatus.CREATED, 1000L, 200L), snapshot(RentalStatus.DELIVERED, 1000L, 200L));
+
+        InOrder order = inOrder(aggregateRepository);
+        order.verify(aggregateRepository).addToValue("STATUS:CREATED", -1L);
+        order.verify(aggregateRepository).addToValue("STATUS:DELIVERED", 1L);
+        verifyNoMoreInteractions(aggregateRepository);
+    }
+
+    @Test
+    void paymentBatchUpdatesEachKeyOnce() {
+        Map<LocalDate, Long> amountByDay = new LinkedHashMap<>();
+        amountByDay.put(LocalDate.of(2026, 5, 7), 150L);
+        amountByDay.put(LocalDate.of(2026, 5, 6), 200L);
+        Map<RentalStatus, Long> amountByStatus = new LinkedHashMap<>();
+        amountByStatus.put(RentalStatus.CREATED, 300L);
+        amountByStatus.put(RentalStatus.CANCELLED, 50L);     // Cancelada: no cuenta en el saldo
+
+        service.applyPayments(amountByDay, amountByStatus);
+
+        InOrder order = inOrder(aggregateRepository);
+        order.verify(aggregateRepository).addToValue("OUTSTANDING", -300L);
+        order.verify(aggregateRepository).addToValue("PAYMENTS:2026-05", 350L);
+        order.verify(aggregateRepository).addToValue("PAYMENTS_DAY:2026-05-06", 200L);
+        order.verify(aggregateRepository).addToValue("PAYMENTS_DAY:2026-05-07", 150L);
+        verifyNoMoreInteractions(aggregateRepository);
+    }
+
+    @Test
+    void deltasOfATransactionAreMergedAndAppliedBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Eliminar una renta con un pago: la renta y el pago tocan llaves distintas y repetidas
+            service.applyRental(snapshot(RentalStatus.CREATED, 1000L, 200L), null);
+            service.applyPayment(START.plusDays(1), null, -200L);
+            service.applyPayment(START.plusDays(1), RentalStatus.CREATED, 0L);
+
+            // Nada se escribe hasta el commit y hay un solo mapa por transacción
+            verifyNoInteractions(aggregateRepository);
+            assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.beforeCommit(false));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        InOrder order = inOrder(aggregateRepository);
+        order.verify(aggregateRepository).addToValue("OUTSTANDING", -800L);
+        order.verify(aggregateRepository).addToValue("PAYMENTS:2026-05", -200L);
+        order.verify(aggregateRepository).addToValue("PAYMENTS_DAY:2026-05-07", -200L);
+        order.verify(aggregateRepository).addToValue("REVENUE:2026-05", -1000L);
+        order.verify(aggregateRepository).addToValue("REVENUE_DAY:2026-05-06", -1000L);
+        order.verify(aggregateRepository).addToValue("STATUS:CREATED", -1L);
+        verifyNoMoreInteractions(aggregateRepository);
+    }
+
+    @Test
+    void rolledBackTransactionWritesNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.applyRental(null, snapshot(RentalStatus.CREATED, 1000L, 0L));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verifyNoInteractions(aggregateRepository);
+    }
+
+    private static RentalSnapshot snapshot(RentalStatus status, Long total, Long paid) {
+        return new RentalSnapshot(1L, status, START, START.plusDays(2), total, paid, Map.of(10L, 2L));
+    }
+}
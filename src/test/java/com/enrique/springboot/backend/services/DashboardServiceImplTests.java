@@ -0,0 +1,161 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.DashboardStatsResponse;
+import com.enrique.springboot.backend.dto.TimeSeriesResponse;
+import com.enrique.springboot.backend.entities.DashboardAggregate;
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.enums.TimeGranularity;
+import com.enrique.springboot.backend.repositories.PaymentRepository;
+import com.enrique.springboot.backend.repositories.RentalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/* Estadísticas y series de tiempo del dashboard con repositorios simulados */
+@ExtendWith(MockitoExtension.class)
+class DashboardServiceImplTests {
+
+    @Mock
+    private RentalRepository rentalRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private DashboardAggregateService aggregateService;
+
+    private DashboardServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DashboardServiceImpl(rentalRepository, paymentRepository, aggregateService);
+    }
+
+    @Test
+    void statsWithoutAggregatesComeFromOneQuery() {
+        when(aggregateService.isEnabled()).thenReturn(false);
+        // MySQL regresa COUNT como Long y SUM como BigDecimal
+        List<Object[]> rows = List.<Object[]>of(new Object[]{
+                3L, 2L, new BigDecimal("5000"), new BigDecimal("1200"), new BigDecimal("800")});
+        when(rentalRepository.getDashboardStats(any(), any(), any())).thenReturn(rows);
+
+        DashboardStatsResponse stats = service.getStats();
+
+        assertEquals(3L, stats.getRentasPorEntregar());
+        assertEquals(2L, stats.getRentasPorRecoger());
+        assertEquals(5000L, stats.getIngresosDelMes());
+        assertEquals(1200L, stats.getPagosDelMes());
+        assertEquals(800L, stats.getSaldoPendiente());
+        verify(rentalRepository, times(1)).getDashboardStats(any(), any(), any());
+        verifyNoMoreInteractions(rentalRepository);
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    void statsWithAggregatesReadFiveKeys() {
+        when(aggregateService.isEnabled()).thenReturn(true);
+        YearMonth month = YearMonth.now();
+        Map<String, Long> values = new HashMap<>();
+        values.put(DashboardAggregate.statusKey(RentalStatus.CREATED), 4L);
+        values.put(DashboardAggregate.statusKey(RentalStatus.DELIVERED), 1L);
+        values.put(DashboardAggregate.revenueKey(month), 9000L);
+        values.put(DashboardAggregate.paymentsKey(month), 3000L);
+        values.put(DashboardAggregate.OUTSTANDING_KEY, 6000L);
+        when(aggregateService.getValues(anyCollection())).thenReturn(values);
+
+        DashboardStatsResponse stats = service.getStats();
+
+        assertEquals(4L, stats.getRentasPorEntregar());
+        assertEquals(1L, stats.getRentasPorRecoger());
+        assertEquals(9000L, stats.getIngresosDelMes());
+        assertEquals(3000L, stats.getPagosDelMes());
+        assertEquals(6000L, stats.getSaldoPendiente());
+        verifyNoInteractions(rentalRepository, paymentRepository);
+    }
+
+    @Test
+    void weeklyBucketsStartOnMondayAndAddTheirDays() {
+        when(aggregateService.isEnabled()).thenReturn(true);
+        // Miércoles 2026-05-06 a miércoles 2026-05-20: semanas del 4, 11 y 18 de mayo
+        LocalDate from = LocalDate.of(2026, 5, 6);
+        LocalDate to = LocalDate.of(2026, 5, 20);
+        when(aggregateService.getRange(DashboardAggregate.REVENUE_DAY_PREFIX + from, DashboardAggregate.REVENUE_DAY_PREFIX + to))
+                .thenReturn(Map.of(
+                        DashboardAggregate.revenueDayKey(LocalDate.of(2026, 5, 6)), 100L,
+                        DashboardAggregate.revenueDayKey(LocalDate.of(2026, 5, 10)), 50L,   // domingo: misma semana
+                        DashboardAggregate.revenueDayKey(LocalDate.of(2026, 5, 11)), 7L,    // lunes: semana siguiente
+                        DashboardAggregate.revenueDayKey(LocalDate.of(2026, 5, 20)), 3L));
+        when(aggregateService.getRange(DashboardAggregate.PAYMENTS_DAY_PREFIX + from, DashboardAggregate.PAYMENTS_DAY_PREFIX + to))
+                .thenReturn(Map.of(DashboardAggregate.paymentsDayKey(LocalDate.of(2026, 5, 19)), 40L));
+
+        TimeSeriesResponse series = service.getTimeSeries(from, to, TimeGranularity.WEEK);
+
+        assertEquals(List.of("2026-05-04", "2026-05-11", "2026-05-18"), series.getBuckets());
+        assertArrayEquals(new long[]{150L, 7L, 3L}, series.getRevenue());
+        assertArrayEquals(new long[]{0L, 0L, 40L}, series.getCollected());
+    }
+
+    @Test
+    void monthlyBucketsFromDailyQueriesWithoutAggregates() {
+        when(aggregateService.isEnabled()).thenReturn(false);
+        LocalDate from = LocalDate.of(2026, 1, 15);
+        LocalDate to = LocalDate.of(2026, 3, 1);
+        // El driver puede regresar java.sql.Date o LocalDate
+        when(rentalRepository.sumTotalGroupByStartDay(eq(from.atStartOfDay()), eq(to.plusDays(1).atStartOfDay()), anyList()))
+                .thenReturn(List.of(
+                        new Object[]{Date.valueOf("2026-01-20"), 10L},
+                        new Object[]{LocalDate.of(2026, 1, 31), 20L},
+                        new Object[]{LocalDate.of(2026, 3, 1), new BigDecimal("5")}));
+        when(paymentRepository.sumAmountGroupByDay(from.atStartOfDay(), to.plusDays(1).atStartOfDay()))
+                .thenReturn(List.<Object[]>of(new Object[]{LocalDate.of(2026, 2, 28), 8L}));
+
+        TimeSeriesResponse series = service.getTimeSeries(from, to, TimeGranularity.MONTH);
+
+        assertEquals(List.of("2026-01-01", "2026-02-01", "2026-03-01"), series.getBuckets());
+        assertArrayEquals(new long[]{30L, 0L, 5L}, series.getRevenue());
+        assertArrayEquals(new long[]{0L, 8L, 0L}, series.getCollected());
+    }
+
+    @Test
+    void dailyBucketsIncludeBothEnds() {
+        when(aggregateService.isEnabled()).thenReturn(true);
+        when(aggregateService.getRange(any(), any())).thenReturn(Map.of());
+
+        TimeSeriesResponse series = service.getTimeSeries(
+                LocalDate.of(2026, 2, 27), LocalDate.of(2026, 3, 2), TimeGranularity.DAY);
+
+        assertEquals(List.of("2026-02-27", "2026-02-28", "2026-03-01", "2026-03-02"), series.getBuckets());
+        assertArrayEquals(new long[4], series.getRevenue());
+    }
+
+    @Test
+    void invertedOrHugeRangesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.getTimeSeries(
+                LocalDate.of(2026, 3, 2), LocalDate.of(2026, 3, 1), TimeGranularity.DAY));
+        assertThrows(IllegalArgumentException.class, () -> service.getTimeSeries(
+                LocalDate.of(1900, 1, 1), LocalDate.of(2026, 1, 1), TimeGranularity.DAY));
+    }
+}
@@ -0,0 +1,65 @@
+package com.enrique.springboot.backend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Memoria de llaves de idempotencia: al llenarse solo descarta llaves que ya terminaron */
+class IdempotencyStoreTests {
+
+    @Test
+    void repeatedKeyReceivesTheOriginalResult() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(10, Duration.ofMinutes(5));
+
+        assertTrue(store.claim("a", "f1").owner());
+        store.complete("a", "pago 1");
+
+        IdempotencyStore.Claim<String> replay = store.claim("a", "f1");
+        assertFalse(replay.owner());
+        assertEquals("pago 1", replay.result().join());
+    }
+
+    @Test
+    void fullStoreEvictsTheOldestCompletedKey() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(2, Duration.ofMinutes(5));
+        store.claim("a", "f");
+        store.complete("a", "pago a");
+        store.claim("b", "f");
+        store.complete("b", "pago b");
+
+        store.claim("c", "f");
+
+        assertFalse(store.claim("b", "f").owner());
+        assertTrue(store.claim("a", "f").owner(), "La llave más vieja ya terminada se descarta");
+    }
+
+    @Test
+    void inFlightKeysAreNeverEvicted() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(2, Duration.ofMinutes(5));
+        store.claim("a", "f");              // Sigue en proceso
+        store.claim("b", "f");
+        store.complete("b", "pago b");
+
+        store.claim("c", "f");
+        store.claim("d", "f");
+
+        // "a" no terminó: su repetición debe esperar el resultado, no volver a ejecutar el pago
+        assertFalse(store.claim("a", "f").owner());
+        assertTrue(store.claim("b", "f").owner());
+    }
+
+    @Test
+    void failedKeyCanBeClaimedAgain() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(10, Duration.ofMinutes(5));
+        IdempotencyStore.Claim<String> first = store.claim("a", "f");
+
+        store.release("a", new IllegalStateException("Pago no creado"));
+
+        assertTrue(first.result().isCompletedExceptionally());
+        assertTrue(store.claim("a", "f").owner());
+    }
+}
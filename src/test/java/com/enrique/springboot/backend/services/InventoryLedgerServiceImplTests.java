@@ -0,0 +1,120 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.repositories.InventoryLedgerRepository;
+import com.enrique.springboot.backend.repositories.ProductRepository;
+import com.enrique.springboot.backend.repositories.RentalItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/* Libro de reservas con JdbcTemplate simulado: las horas a las que se les resta
+* se borran si quedan en 0 */
+@ExtendWith(MockitoExtension.class)
+class InventoryLedgerServiceImplTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 5, 6, 10, 30);
+
+    @Mock
+    private InventoryLedgerRepository ledgerRepository;
+
+    @Mock
+    private RentalItemRepository rentalItemRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> batch;
+
+    private InventoryLedgerServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new InventoryLedgerServiceImpl(ledgerRepository, rentalItemRepository, productRepository,
+                jdbcTemplate, true);
+    }
+
+    @Test
+    void newRentalOnlyAddsItsHours() {
+        // 10:30 a 11:15 toca las horas de las 10 y las 11
+        service.apply(null, snapshot(RentalStatus.CREATED, START.plusMinutes(45)));
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("DELETE"), anyList());
+    }
+
+    @Test
+    void cancelledRentalDeletesTheHoursLeftEmpty() {
+        service.apply(snapshot(RentalStatus.CREATED, START), snapshot(RentalStatus.CANCELLED, START));
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), batch.capture());
+        assertArrayEquals(new Object[]{10L, hour(10), -2L}, batch.getValue().get(0));
+
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE"), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertArrayEquals(new Object[]{10L, hour(10)}, batch.getValue().get(0));
+    }
+
+    @Test
+    void movingARentalOnlyDeletesTheHoursItLeft() {
+        // De 10:30-11:00 a 11:00-12:00: deja la hora de las 10, se queda en la de las 11 y toma la de las 12
+        RentalSnapshot before = new RentalSnapshot(1L, RentalStatus.CREATED, START, hour(11).toLocalDateTime(),
+                1000L, 0L, Map.of(10L, 2L));
+        RentalSnapshot after = new RentalSnapshot(1L, RentalStatus.CREATED, hour(11).toLocalDateTime(),
+                hour(12).toLocalDateTime(), 1000L, 0L, Map.of(10L, 2L));
+
+        service.apply(before, after);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE"), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertArrayEquals(new Object[]{10L, hour(10)}, batch.getValue().get(0));
+    }
+
+    @Test
+    void rebuildSkipsHoursWithNothingReserved() {
+        when(rentalItemRepository.findBookingsByStatuses(anyList())).thenReturn(List.of(
+                new Object[]{1L, 10L, START, START, 2},
+                new Object[]{2L, 11L, START, START, 0}));
+        when(ledgerRepository.findAllNonZero()).thenReturn(List.<Object[]>of(
+                new Object[]{10L, hour(10).toLocalDateTime(), 2L}));
+
+        assertEquals(0, service.rebuild().getMismatchedBuckets());
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertArrayEquals(new Object[]{10L, hour(10), 2L}, batch.getValue().get(0));
+    }
+
+    private static RentalSnapshot snapshot(RentalStatus status, LocalDateTime end) {
+        return new RentalSnapshot(1L, status, START, end, 1000L, 0L, Map.of(10L, 2L));
+    }
+
+    private static Timestamp hour(int hour) {
+        return Timestamp.valueOf(START.withHour(hour).withMinute(0));
+    }
+}
@@ -0,0 +1,11 @@
+package com.enrique.springboot.backend.services;
+
+import org.springframework.test.context.TestPropertySource;
+
+/* La misma prueba de carga de RentalBookingConcurrencyTests con rentals.booking.locking=optimistic:
+* las reservas que pierden el conflicto de versión se reintentan y, al ver el stock
+* ocupado, fallan por stock insuficiente (o se agotan los reintentos)
+* El log de las dos clases da reservas por segundo de cada estrategia para compararlas */
+@TestPropertySource(properties = "rentals.booking.locking=optimistic")
+class OptimisticRentalBookingConcurrencyTests extends RentalBookingConcurrencyTests {
+}
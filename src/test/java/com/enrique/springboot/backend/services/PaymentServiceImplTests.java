@@ -0,0 +1,77 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.entities.Payment;
+import com.enrique.springboot.backend.entities.Rental;
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.repositories.PaymentRepository;
+import com.enrique.springboot.backend.repositories.RentalRepository;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/* Edición de pagos con repositorios simulados: lo anterior se resta con los datos
+* guardados en la base de datos, no con los de la petición */
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceImplTests {
+
+    private static final LocalDateTime OLD_DATE = LocalDateTime.of(2026, 4, 30, 12, 0);
+    private static final LocalDateTime NEW_DATE = LocalDateTime.of(2026, 5, 2, 12, 0);
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private RentalRepository rentalRepository;
+
+    @Mock
+    private DashboardAggregateService aggregateService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Validator validator;
+
+    private PaymentServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PaymentServiceImpl(paymentRepository, rentalRepository, aggregateService,
+                eventPublisher, jdbcTemplate, validator);
+    }
+
+    @Test
+    void movingAPaymentToAnotherRentalUsesThePreviousRentalStatus() {
+        Rental newRental = new Rental();
+        newRental.setId(2L);
+        newRental.setStatus(RentalStatus.CREATED);
+        Payment payment = new Payment(newRental, 300L, NEW_DATE, null);
+        payment.setId(7L);
+        // Antes estaba en la renta 1, que ya se canceló
+        when(paymentRepository.findStoredAmountAndDate(7L)).thenReturn(List.<Object[]>of(
+                new Object[]{500L, OLD_DATE, 1L, RentalStatus.CANCELLED}));
+        when(paymentRepository.save(any())).thenReturn(payment);
+
+        service.save(payment);
+
+        verify(aggregateService).applyPayment(OLD_DATE, RentalStatus.CANCELLED, -500L);
+        verify(rentalRepository).addAmountPaid(1L, -500L);
+        verify(aggregateService).applyPayment(NEW_DATE, RentalStatus.CREATED, 300L);
+        verify(rentalRepository).addAmountPaid(2L, 300L);
+    }
+}
@@ -0,0 +1,136 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.entities.Product;
+import com.enrique.springboot.backend.repositories.ClientRepository;
+import com.enrique.springboot.backend.repositories.ProductRepository;
+import com.enrique.springboot.backend.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Prueba de carga: 64 personas reservan al mismo tiempo los mismos productos
+* - Cada reserva pide una unidad de dos productos vecinos, así cada producto lo
+*   piden 32 reservas para 8 unidades y hay conflictos entre productos distintos
+* - Ningún producto debe quedar con más unidades reservadas que su stock (sin sobreventa)
+* - Reservar no debe cambiar la versión del catálogo (Product.version)
+* - Se registra en el log cuántas reservas por segundo se procesaron
+*
+* Usa la base de datos configurada, igual que ApplicationTests, con sus propios datos
+* (RentalTestData) que se borran al terminar.
+* Esta clase prueba la estrategia por defecto (pessimistic); la optimista está en
+* OptimisticRentalBookingConcurrencyTests y compara su resultado en el log */
+@SpringBootTest
+class RentalBookingConcurrencyTests {
+
+    private static final Logger log = LoggerFactory.getLogger(RentalBookingConcurrencyTests.class);
+
+    private static final int THREADS = 64;
+    private static final int PRODUCTS = 4;
+    private static final long STOCK = 8;
+
+    @Autowired
+    private RentalService rentalService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${rentals.booking.locking:pessimistic}")
+    private String lockingStrategy;
+
+    private RentalTestData data;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        data = new RentalTestData(rentalService, productRepository, clientRepository, userRepository);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(data.product(STOCK));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        data.deleteAll();
+    }
+
+    @Test
+    void concurrentBookingsNeverOversell() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusYears(50).withNano(0);
+        LocalDateTime end = start.plusDays(2);
+
+        // Todos los hilos esperan en la misma puerta para reservar al mismo tiempo
+        CountDownLatch ready = new CountDownLatch(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<List<Product>> requested = new ArrayList<>();
+        List<Future<Long>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                List<Product> pair = List.of(products.get(i % PRODUCTS), products.get((i + 1) % PRODUCTS));
+                requested.add(pair);
+                results.add(executor.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return data.book(data.request(start, end, pair));
+                }));
+            }
+            ready.await(10, TimeUnit.SECONDS);
+            long startedAt = System.nanoTime();
+            go.countDown();
+
+            Map<Long, Long> booked = new HashMap<>();
+            int succeeded = 0;
+            for (int i = 0; i < THREADS; i++) {
+                try {
+                    results.get(i).get(60, TimeUnit.SECONDS);
+                    succeeded++;
+                    requested.get(i).forEach(product -> booked.merge(product.getId(), 1L, Long::sum));
+                } catch (ExecutionException e) {
+                    // Stock insuficiente o se agotaron los reintentos: esperado cuando ya no hay unidades
+                }
+            }
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+            log.info("Reservas con locking={}: {} de {} guardadas en {} s ({} reservas/s, {} intentos/s)",
+                    lockingStrategy, succeeded, THREADS, String.format("%.2f", seconds),
+                    String.format("%.1f", succeeded / seconds), String.format("%.1f", THREADS / seconds));
+
+            assertTrue(succeeded > 0, "Al menos una reserva debe guardarse");
+            for (Product product : products) {
+                long units = booked.getOrDefault(product.getId(), 0L);
+                assertTrue(units <= STOCK,
+                        "Producto " + product.getId() + " con " + units + " unidades reservadas y stock " + STOCK);
+                assertEquals(product.getVersion(), productRepository.findById(product.getId()).orElseThrow().getVersion(),
+                        "Reservar no debe cambiar la versión del catálogo");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.CreateRentalRequest;
+import com.enrique.springboot.backend.entities.Product;
+import com.enrique.springboot.backend.entities.Rental;
+import com.enrique.springboot.backend.enums.RentalStatus;
+import com.enrique.springboot.backend.repositories.ClientRepository;
+import com.enrique.springboot.backend.repositories.ProductRepository;
+import com.enrique.springboot.backend.repositories.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Número de consultas al guardar y listar rentas: no debe crecer con el número
+* de productos ni de rentas (sin N+1)
+*
+* Usa la base de datos configurada, igual que ApplicationTests, y las estadísticas
+* de Hibernate (hibernate.generate_statistics) */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class RentalQueryCountTests {
+
+    private static final int PRODUCTS = 5;
+    private static final int SEEDED_RENTALS = 1000;
+
+    @Autowired
+    private RentalService rentalService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private RentalTestData data;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        data = new RentalTestData(rentalService, productRepository, clientRepository, userRepository);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(data.product(10L));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Las rentas insertadas en lote no pasan por RentalService: se borran igual
+        jdbcTemplate.update("""
+                DELETE ri FROM rental_items ri JOIN rentals r ON r.id = ri.rental_id
+                WHERE r.client_id = ? AND r.status = ?
+                """, data.client().getId(), RentalStatus.CANCELLED.name());
+        jdbcTemplate.update("DELETE FROM rentals WHERE client_id = ? AND status = ?",
+                data.client().getId(), RentalStatus.CANCELLED.name());
+        data.deleteAll();
+    }
+
+    @Test
+    void creatingARentalDoesNotQueryOncePerProduct() {
+        LocalDateTime start = LocalDateTime.now().plusYears(50).withNano(0);
+
+        statistics.clear();
+        data.book(request(start, products.subList(0, 1)));
+        long withOneProduct = readStatements();
+        long fetchesWithOneProduct = statistics.getEntityFetchCount() + statistics.getCollectionFetchCount();
+
+        statistics.clear();
+        data.book(request(start, products));
+        long withAllProducts = readStatements();
+        long fetchesWithAllProducts = statistics.getEntityFetchCount() + statistics.getCollectionFetchCount();
+
+        assertEquals(withOneProduct, withAllProducts,
+                "Guardar una renta con " + PRODUCTS + " productos debe hacer las mismas consultas que con uno");
+        assertEquals(fetchesWithOneProduct, fetchesWithAllProducts, "Sin cargas perezosas por producto");
+    }
+
+    @Test
+    void listingRentalsLoadsDetailsInOneQuery() {
+        LocalDateTime start = LocalDateTime.now().plusYears(50).withNano(0);
+        Long booked = data.book(request(start, products.subList(0, 2)));
+
+        long withFewRentals = listAndCountStatements(booked);
+
+        seedRentals(start);
+        long withManyRentals = listAndCountStatements(booked);
+
+        assertEquals(1, withFewRentals, "Listar rentas con cliente, usuario, items y productos debe ser una sola consulta");
+        assertEquals(withFewRentals, withManyRentals,
+                "Con " + SEEDED_RENTALS + " rentas más debe hacer las mismas consultas");
+    }
+
+    // Lista las rentas, toca lo que usa RentalResponse y regresa las sentencias preparadas
+    private long listAndCountStatements(Long expectedRentalId) {
+        statistics.clear();
+        List<Rental> rentals = rentalService.findAll();
+        // Si algo no vino en la consulta fallaría (la sesión ya se cerró)
+        for (Rental rental : rentals) {
+            rental.getClient().getNombre();
+            rental.getUser().getUsername();
+            rental.getItems().forEach(item -> item.getProduct().getName());
+        }
+
+        assertEquals(0, statistics.getEntityFetchCount(), "Sin cargas perezosas de entidades");
+        assertEquals(0, statistics.getCollectionFetchCount(), "Sin cargas perezosas de colecciones");
+        assertTrue(rentals.stream().anyMatch(rental -> rental.getId().equals(expectedRentalId)));
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Sentencias preparadas sin contar los INSERT de entidades (un item = un INSERT por IDENTITY)
+    private long readStatements() {
+        return statistics.getPrepareStatementCount() - statistics.getEntityInsertCount();
+    }
+
+    /* SEEDED_RENTALS rentas canceladas con dos items, insertadas en lote con JdbcTemplate
+    * Canceladas para no ocupar inventario ni mover los contadores del dashboard */
+    private void seedRentals(LocalDateTime start) {
+        Long clientId = data.client().getId();
+        List<Object[]> rentals = new ArrayList<>(SEEDED_RENTALS);
+        for (int i = 0; i < SEEDED_RENTALS; i++) {
+            rentals.add(new Object[]{Timestamp.valueOf(start.plusHours(i)), Timestamp.valueOf(start.plusHours(i + 1)),
+                    "Calle de prueba", RentalStatus.CANCELLED.name(), clientId, data.user().getId(), 200L});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO rentals (start_date, end_date, address, status, client_id, user_id, total, version)
+                VALUES (?, ?, ?, ?, ?, ?, ?, 0)
+                """, rentals);
+
+        List<Long> rentalIds = jdbcTemplate.queryForList(
+                "SELECT id FROM rentals WHERE client_id = ? AND status = ?",
+                Long.class, clientId, RentalStatus.CANCELLED.name());
+        List<Object[]> items = new ArrayList<>(rentalIds.size() * 2);
+        for (Long rentalId : rentalIds) {
+            for (Product product : products.subList(0, 2)) {
+                items.add(new Object[]{rentalId, product.getId(), 1, 100L});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO rental_items (rental_id, product_id, quantity, price) VALUES (?, ?, ?, ?)", items);
+    }
+
+    private CreateRentalRequest request(LocalDateTime start, List<Product> rentalProducts) {
+        return data.request(start, start.plusDays(1), rentalProducts);
+    }
+}
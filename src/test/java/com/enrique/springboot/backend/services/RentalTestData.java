@@ -0,0 +1,117 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.dto.CreateRentalRequest;
+import com.enrique.springboot.backend.dto.RentalItemRequest;
+import com.enrique.springboot.backend.entities.Client;
+import com.enrique.springboot.backend.entities.Product;
+import com.enrique.springboot.backend.entities.User;
+import com.enrique.springboot.backend.enums.Role;
+import com.enrique.springboot.backend.repositories.ClientRepository;
+import com.enrique.springboot.backend.repositories.ProductRepository;
+import com.enrique.springboot.backend.repositories.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/* Datos de prueba para las pruebas contra la base de datos configurada
+*
+* Crea un cliente y un usuario propios (con un sufijo único, para no chocar con
+* datos reales ni con otra prueba), los productos que se pidan y registra las rentas
+* que se guarden; deleteAll() borra todo al terminar */
+class RentalTestData {
+
+    private final RentalService rentalService;
+    private final ProductRepository productRepository;
+    private final ClientRepository clientRepository;
+    private final UserRepository userRepository;
+
+    private final String suffix = UUID.randomUUID().toString().substring(0, 8);
+    private final List<Product> products = new ArrayList<>();
+    // Las pruebas de concurrencia registran rentas desde varios hilos
+    private final List<Long> rentalIds = Collections.synchronizedList(new ArrayList<>());
+    private final Client client;
+    private final User user;
+
+    RentalTestData(RentalService rentalService, ProductRepository productRepository,
+                   ClientRepository clientRepository, UserRepository userRepository) {
+        this.rentalService = rentalService;
+        this.productRepository = productRepository;
+        this.clientRepository = clientRepository;
+        this.userRepository = userRepository;
+
+        Client newClient = new Client();
+        newClient.setNombre("Cliente " + suffix);
+        newClient.setTelefono("5550000000");
+        newClient.setDireccion("Calle de prueba");
+        newClient.setEmail(suffix + "@prueba.test");
+        this.client = clientRepository.save(newClient);
+
+        User newUser = new User();
+        newUser.setUsername("prueba-" + suffix);
+        newUser.setPassword("{noop}prueba");
+        newUser.setTelefono("5550000000");
+        newUser.setRole(Role.CHAMBEADOR);
+        this.user = userRepository.save(newUser);
+    }
+
+    Product product(long stock) {
+        Product product = new Product();
+        product.setName("Prueba " + suffix + " " + products.size());
+        product.setDescription("Producto de prueba");
+        product.setPrice(100L);
+        product.setColor("Blanco");
+        product.setStock(stock);
+        product = productRepository.save(product);
+        products.add(product);
+        return product;
+    }
+
+    Client client() {
+        return client;
+    }
+
+    User user() {
+        return user;
+    }
+
+    // Una unidad de cada producto
+    CreateRentalRequest request(LocalDateTime start, LocalDateTime end, List<Product> rentalProducts) {
+        List<RentalItemRequest> items = new ArrayList<>();
+        for (Product product : rentalProducts) {
+            RentalItemRequest item = new RentalItemRequest();
+            item.setProductId(product.getId());
+            item.setQuantity(1);
+            items.add(item);
+        }
+
+        CreateRentalRequest request = new CreateRentalRequest();
+        request.setStartDate(start);
+        request.setEndDate(end);
+        request.setClientId(client.getId());
+        request.setUserId(user.getId());
+        request.setAddress("Calle de prueba");
+        request.setItems(items);
+        return request;
+    }
+
+    // Guarda la renta con RentalService y la registra para borrarla al final
+    Long book(CreateRentalRequest request) {
+        Long id = rentalService.createRentalFromDto(request).getId();
+        rentalIds.add(id);
+        return id;
+    }
+
+    void deleteAll() {
+        List<Long> ids;
+        synchronized (rentalIds) {
+            ids = new ArrayList<>(rentalIds);
+        }
+        ids.forEach(rentalService::deleteById);
+        products.forEach(product -> productRepository.deleteById(product.getId()));
+        clientRepository.deleteById(client.getId());
+        userRepository.deleteById(user.getId());
+    }
+}
@@ -0,0 +1,83 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.events.RentalChangedEvent;
+import com.enrique.springboot.backend.repositories.RentalItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/* Índice en memoria de reservas por producto, con el repositorio simulado */
+@ExtendWith(MockitoExtension.class)
+class RentalUsageIndexTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 5, 6, 10, 0);
+    private static final LocalDateTime END = START.plusDays(2);
+
+    @Mock
+    private RentalItemRepository rentalItemRepository;
+
+    private RentalUsageIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RentalUsageIndex(rentalItemRepository, true);
+    }
+
+    @Test
+    void rebuildAddsItemsOfTheSameProductInOneRental() {
+        when(rentalItemRepository.findBookingsByStatuses(anyList())).thenReturn(List.of(
+                row(1L, 10L, 3),
+                row(1L, 10L, 2),    // Mismo producto otra vez en la renta 1
+                row(2L, 10L, 1)
+        ));
+
+        index.build();
+
+        assertTrue(index.isReady());
+        assertEquals(6, index.maxBooked(10L, START, END, null));
+        assertEquals(1, index.maxBooked(10L, START, END, 1L));
+    }
+
+    @Test
+    void rentalChangeAddsItemsOfTheSameProduct() {
+        when(rentalItemRepository.findBookingsByStatuses(anyList())).thenReturn(List.of());
+        index.build();
+        when(rentalItemRepository.findBookingsByRentalAndStatuses(eq(1L), anyList())).thenReturn(List.of(
+                row(1L, 10L, 3),
+                row(1L, 10L, 2),
+                row(1L, 11L, 4)
+        ));
+
+        index.onRentalChanged(new RentalChangedEvent(1L));
+
+        assertEquals(5, index.maxBooked(10L, START, END, null));
+        assertEquals(4, index.maxBooked(11L, START, END, null));
+    }
+
+    @Test
+    void rentalThatNoLongerOccupiesInventoryIsRemoved() {
+        when(rentalItemRepository.findBookingsByStatuses(anyList())).thenReturn(List.<Object[]>of(row(1L, 10L, 3)));
+        index.build();
+        when(rentalItemRepository.findBookingsByRentalAndStatuses(eq(1L), anyList())).thenReturn(List.of());
+
+        index.onRentalChanged(new RentalChangedEvent(1L));
+
+        assertEquals(0, index.maxBooked(10L, START, END, null));
+    }
+
+    // Misma forma que las filas de RentalItemRepository: [rentalId, productId, startDate, endDate, quantity]
+    private static Object[] row(Long rentalId, Long productId, int quantity) {
+        return new Object[]{rentalId, productId, START, END, quantity};
+    }
+}
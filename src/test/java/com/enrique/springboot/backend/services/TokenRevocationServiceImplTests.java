@@ -0,0 +1,80 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.entities.RevokedToken;
+import com.enrique.springboot.backend.repositories.RevokedTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/* Denylist de access tokens con el repositorio simulado
+* "iat" del JWT tiene precisión de segundos, así que el corte por usuario se compara por segundo */
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceImplTests {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    private JwtService jwtService;
+
+    @Test
+    void userCutoffRevokesEverythingUpToItsSecond() {
+        when(revokedTokenRepository.findActive(any())).thenReturn(List.of());
+        when(jwtService.getExpirationTime()).thenReturn(900_000L);
+        TokenRevocationServiceImpl service = new TokenRevocationServiceImpl(revokedTokenRepository, jwtService);
+
+        service.revokeAllForUser("ana");
+
+        ArgumentCaptor<RevokedToken> saved = ArgumentCaptor.forClass(RevokedToken.class);
+        verify(revokedTokenRepository).save(saved.capture());
+        long cutoff = Timestamp.valueOf(saved.getValue().getRevokedAt()).getTime();
+        assertEquals(0, cutoff % 1000, "El corte se guarda en segundos exactos");
+
+        assertTrue(service.isRevoked(null, "ana", cutoff - 1000));
+        // Emitido en el mismo segundo del corte: no se sabe si fue antes o después, se rechaza
+        assertTrue(service.isRevoked(null, "ana", cutoff));
+        assertFalse(service.isRevoked(null, "ana", cutoff + 1000));
+        assertFalse(service.isRevoked(null, "otro", cutoff - 1000));
+    }
+
+    @Test
+    void cutoffLoadedFromTheTableBehavesTheSame() {
+        long now = System.currentTimeMillis();
+        long cutoff = now - now % 1000;
+        RevokedToken stored = new RevokedToken(null, "ana",
+                new Timestamp(cutoff).toLocalDateTime(), LocalDateTime.now().plusMinutes(15));
+        when(revokedTokenRepository.findActive(any())).thenReturn(List.of(stored));
+
+        TokenRevocationServiceImpl service = new TokenRevocationServiceImpl(revokedTokenRepository, jwtService);
+
+        assertTrue(service.isRevoked(null, "ana", cutoff));
+        assertFalse(service.isRevoked(null, "ana", cutoff + 1000));
+    }
+
+    @Test
+    void revokedJtiIsRejectedUntilItExpires() {
+        when(revokedTokenRepository.findActive(any())).thenReturn(List.of());
+        TokenRevocationServiceImpl service = new TokenRevocationServiceImpl(revokedTokenRepository, jwtService);
+        long now = System.currentTimeMillis();
+
+        service.revokeToken("jti-1", "ana", now + 60_000);
+        service.revokeToken("jti-2", "ana", now - 1);     // Ya vencido: no hace falta guardarlo
+
+        assertTrue(service.isRevoked("jti-1", "ana", now));
+        assertFalse(service.isRevoked("jti-2", "ana", now));
+        verify(revokedTokenRepository).save(any());
+    }
+}
@@ -0,0 +1,117 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.services.UsageProfile.Booking;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Máximo de unidades ocupadas al mismo tiempo (UsageProfile)
+* Las reservas son intervalos cerrados [inicio, fin] */
+class UsageProfileTests {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Test
+    void emptyProfileIsAlwaysZero() {
+        assertTrue(UsageProfile.of(List.of()).isEmpty());
+        assertEquals(0, UsageProfile.EMPTY.maxUsage(at(0), at(100)));
+    }
+
+    @Test
+    void bookingsThatDoNotOverlapAreNotAdded() {
+        UsageProfile profile = UsageProfile.of(List.of(booking(10, 20, 4), booking(30, 40, 3)));
+
+        assertEquals(4, profile.maxUsage(at(0), at(50)));
+        assertEquals(3, profile.maxUsage(at(25), at(50)));
+        assertEquals(0, profile.maxUsage(at(21), at(29)));
+    }
+
+    @Test
+    void overlappingBookingsAreAdded() {
+        UsageProfile profile = UsageProfile.of(List.of(booking(10, 50, 2), booking(30, 80, 2), booking(60, 70, 5)));
+
+        assertEquals(7, profile.maxUsage(at(0), at(100)));
+        assertEquals(4, profile.maxUsage(at(30), at(50)));
+        assertEquals(2, profile.maxUsage(at(10), at(29)));
+    }
+
+    @Test
+    void endpointsAreInclusive() {
+        // Una termina en 50 y la otra empieza en 50: en ese instante están las dos
+        UsageProfile profile = UsageProfile.of(List.of(booking(10, 50, 1), booking(50, 90, 1)));
+
+        assertEquals(2, profile.maxUsage(at(0), at(100)));
+        assertEquals(2, profile.maxUsage(at(50), at(50)));
+        assertEquals(1, profile.maxUsage(at(51), at(100)));
+        // Un rango que termina justo donde empieza la reserva la cuenta
+        assertEquals(1, profile.maxUsage(at(0), at(10)));
+        assertEquals(0, profile.maxUsage(at(0), at(9)));
+    }
+
+    @Test
+    void rangeInsideABookingWithoutAnyPoint() {
+        // No hay inicios ni fines dentro de [40, 60]: se usa lo ocupado en ese tramo
+        UsageProfile profile = UsageProfile.of(List.of(booking(10, 100, 3), booking(20, 30, 1)));
+
+        assertEquals(3, profile.maxUsage(at(40), at(60)));
+    }
+
+    @Test
+    void rangesOutsideAllBookingsAreZero() {
+        UsageProfile profile = UsageProfile.of(List.of(booking(10, 20, 4)));
+
+        assertEquals(0, profile.maxUsage(at(0), at(9)));
+        assertEquals(0, profile.maxUsage(at(21), at(100)));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomBookings() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<Booking> bookings = new ArrayList<>();
+            int count = 1 + random.nextInt(30);
+            for (int i = 0; i < count; i++) {
+                int start = random.nextInt(200);
+                bookings.add(booking(start, start + random.nextInt(40), 1 + random.nextInt(5)));
+            }
+            UsageProfile profile = UsageProfile.of(bookings);
+
+            for (int query = 0; query < 20; query++) {
+                int from = random.nextInt(260) - 20;
+                int to = from + random.nextInt(60);
+                assertEquals(bruteForce(bookings, from, to), profile.maxUsage(at(from), at(to)),
+                        "ronda " + round + ", rango [" + from + ", " + to + "]");
+            }
+        }
+    }
+
+    // Revisa hora por hora (todas las reservas de la prueba empiezan y terminan en horas exactas)
+    private static long bruteForce(List<Booking> bookings, int from, int to) {
+        long max = 0;
+        for (int hour = from; hour <= to; hour++) {
+            LocalDateTime instant = at(hour);
+            long used = 0;
+            for (Booking booking : bookings) {
+                if (!booking.start().isAfter(instant) && !booking.end().isBefore(instant)) {
+                    used += booking.quantity();
+                }
+            }
+            max = Math.max(max, used);
+        }
+        return max;
+    }
+
+    private static Booking booking(int startHour, int endHour, long quantity) {
+        return new Booking(at(startHour), at(endHour), quantity);
+    }
+
+    private static LocalDateTime at(int hour) {
+        return BASE.plusHours(hour);
+    }
+}
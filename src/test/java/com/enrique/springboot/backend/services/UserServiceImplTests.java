@@ -0,0 +1,133 @@
+package com.enrique.springboot.backend.services;
+
+import com.enrique.springboot.backend.entities.User;
+import com.enrique.springboot.backend.repositories.UserRepository;
+import com.enrique.springboot.backend.security.SecurityConfig;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/* Login con el mismo PasswordEncoder que SecurityConfig (bcrypt con costo bajo para
+* que la prueba sea rápida) y el repositorio simulado */
+@ExtendWith(MockitoExtension.class)
+class UserServiceImplTests {
+
+    private static final String PASSWORD = "secreta";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PasswordHasher busyHasher;
+
+    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
+    private UserServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        passwordEncoder = new SecurityConfig(null).passwordEncoder("bcrypt", 4);
+        passwordHasher = new PasswordHasher(passwordEncoder, 1, 10, 5000);
+        service = new UserServiceImpl(userRepository, passwordHasher, refreshTokenService,
+                tokenRevocationService, entityManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void legacyBcryptHashIsUpgradedOnLogin() {
+        // Hash de antes de DelegatingPasswordEncoder: sin prefijo {bcrypt}
+        String legacyHash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        when(userRepository.findByUsername("ana")).thenReturn(Optional.of(user(legacyHash)));
+
+        Optional<User> logged = service.login("ana", PASSWORD);
+
+        assertTrue(logged.isPresent());
+        assertNull(logged.get().getPassword(), "El password nunca se regresa");
+        ArgumentCaptor<String> newHash = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).updatePassword(eq(1L), newHash.capture());
+        assertTrue(newHash.getValue().startsWith("{bcrypt}"));
+        assertTrue(passwordEncoder.matches(PASSWORD, newHash.getValue()));
+    }
+
+    @Test
+    void currentHashIsNotRecalculated() {
+        when(userRepository.findByUsername("ana")).thenReturn(Optional.of(user(passwordEncoder.encode(PASSWORD))));
+
+        assertTrue(service.login("ana", PASSWORD).isPresent());
+        verify(userRepository, never()).updatePassword(anyLong(), anyString());
+    }
+
+    @Test
+    void wrongPasswordDoesNotTouchTheHash() {
+        String legacyHash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        when(userRepository.findByUsername("ana")).thenReturn(Optional.of(user(legacyHash)));
+
+        assertTrue(service.login("ana", "otra").isEmpty());
+        verify(userRepository, never()).updatePassword(anyLong(), anyString());
+    }
+
+    @Test
+    void busyPoolOnRehashStillLogsIn() {
+        UserServiceImpl busyService = new UserServiceImpl(userRepository, busyHasher, refreshTokenService,
+                tokenRevocationService, entityManager);
+        when(userRepository.findByUsername("ana")).thenReturn(Optional.of(user("hash-viejo")));
+        when(busyHasher.matches(PASSWORD, "hash-viejo")).thenReturn(true);
+        when(busyHasher.needsRehash("hash-viejo")).thenReturn(true);
+        when(busyHasher.encode(PASSWORD)).thenThrow(new RejectedExecutionException("Pool lleno"));
+
+        assertTrue(busyService.login("ana", PASSWORD).isPresent());
+        verify(userRepository, never()).updatePassword(anyLong(), anyString());
+    }
+
+    @Test
+    void busyPoolOnVerifyIsReportedToTheController() {
+        UserServiceImpl busyService = new UserServiceImpl(userRepository, busyHasher, refreshTokenService,
+                tokenRevocationService, entityManager);
+        when(userRepository.findByUsername("ana")).thenReturn(Optional.of(user("hash")));
+        when(busyHasher.matches(any(), any())).thenThrow(new RejectedExecutionException("Pool lleno"));
+
+        assertThrows(RejectedExecutionException.class, () -> busyService.login("ana", PASSWORD));
+    }
+
+    private static User user(String passwordHash) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("ana");
+        user.setPassword(passwordHash);
+        return user;
+    }
+}